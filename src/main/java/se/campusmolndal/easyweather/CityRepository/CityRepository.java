@@ -1,25 +1,68 @@
 package se.campusmolndal.easyweather.CityRepository;
 
-import se.campusmolndal.easyweather.models.City;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 
+/**
+ * Reads the {@code aliweather} city table in primary-key order, one page at a time.
+ * Pages are addressed by the last id already seen (keyset pagination), so every page
+ * is an index range scan however deep into the table it is. Rows are handed to the
+ * caller as they arrive from a forward-only result set instead of being collected
+ * into a list; on MySQL the driver streams them row by row.
+ */
 @Repository
 public class CityRepository {
     private final JdbcTemplate jdbcTemplate;
 
+    @Value("${cities.list.fetch-size:500}")
+    private int fetchSize;
+
     public CityRepository(JdbcTemplate jdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
     }
 
-    public List<City> findDistinctCities() {
-        String sql = "SELECT DISTINCT city, lat, lng FROM aliweather";
-        return jdbcTemplate.query(sql, (rs, rowNum) -> new City(
-                rs.getString("city"),
-                rs.getDouble("lat"),
-                rs.getDouble("lng")
-        ));
+    /**
+     * Passes the cities with an id greater than {@code afterId} to the handler in id
+     * order, at most {@code limit} of them, or all when {@code limit} is 0.
+     * Returns the id of the last city handled, or {@code afterId} when there were none.
+     */
+    public long forEachCity(long afterId, int limit, CityRowHandler handler) throws IOException {
+        String sql = "SELECT id, cityName, latitude, longitude FROM aliweather WHERE id > ? ORDER BY id"
+                + (limit > 0 ? " LIMIT ?" : "");
+        long[] lastId = {afterId};
+        try {
+            jdbcTemplate.query(conn -> {
+                PreparedStatement statement = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                // Connector/J only streams instead of buffering the whole result with this marker value
+                boolean mySql = "MySQL".equalsIgnoreCase(conn.getMetaData().getDatabaseProductName());
+                statement.setFetchSize(mySql ? Integer.MIN_VALUE : fetchSize);
+                statement.setLong(1, afterId);
+                if (limit > 0) {
+                    statement.setInt(2, limit);
+                }
+                return statement;
+            }, rs -> {
+                lastId[0] = rs.getLong(1);
+                try {
+                    handler.handle(lastId[0], rs.getString(2), rs.getDouble(3), rs.getDouble(4));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return lastId[0];
+    }
+
+    @FunctionalInterface
+    public interface CityRowHandler {
+        void handle(long id, String cityName, double latitude, double longitude) throws IOException;
     }
 }
@@ -3,9 +3,11 @@ package se.campusmolndal.easyweather;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableConfigurationProperties
+@EnableScheduling
 public class EasyWeatherApplication {
     public static void main(String[] args) {
         SpringApplication.run(EasyWeatherApplication.class, args);
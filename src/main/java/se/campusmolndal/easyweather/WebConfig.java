@@ -1,21 +1,22 @@
 package se.campusmolndal.easyweather;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
-import org.springframework.stereotype.Repository;
+import se.campusmolndal.easyweather.database.ConnectionPoolMetrics;
 import se.campusmolndal.easyweather.database.DatabaseHandler;
-import se.campusmolndal.easyweather.models.City;
 
 import javax.sql.DataSource;
-import java.util.List;
 
 
 @Configuration
 public class WebConfig {
 
+    @Value("${spring.datasource.driver-class-name:com.mysql.cj.jdbc.Driver}")
+    private String dataSourceDriverClassName;
+
     @Value("${spring.datasource.url}")
     private String dataSourceUrl;
 
@@ -25,36 +26,57 @@ public class WebConfig {
     @Value("${spring.datasource.password}")
     private String dataSourcePassword;
 
+    @Value("${db.pool.min-idle:2}")
+    private int poolMinIdle;
+
+    @Value("${db.pool.max-size:10}")
+    private int poolMaxSize;
+
+    @Value("${db.pool.connection-timeout-ms:5000}")
+    private long poolConnectionTimeoutMs;
+
+    @Value("${db.pool.validation-timeout-ms:2000}")
+    private long poolValidationTimeoutMs;
+
+    @Value("${db.pool.keepalive-ms:300000}")
+    private long poolKeepaliveMs;
+
+    @Value("${db.pool.max-lifetime-ms:1800000}")
+    private long poolMaxLifetimeMs;
+
+    @Value("${db.pool.leak-detection-threshold-ms:20000}")
+    private long poolLeakDetectionThresholdMs;
+
     @Bean
-    public DataSource dataSource() {
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName("com.mysql.cj.jdbc.Driver");
-        dataSource.setUrl(dataSourceUrl);
-        dataSource.setUsername(dataSourceUsername);
-        dataSource.setPassword(dataSourcePassword);
-        return dataSource;
+    public ConnectionPoolMetrics connectionPoolMetrics() {
+        return new ConnectionPoolMetrics();
     }
 
-    @Repository
-    public class CityRepository {
-        private final JdbcTemplate jdbcTemplate;
-
-        public CityRepository(JdbcTemplate jdbcTemplate) {
-            this.jdbcTemplate = jdbcTemplate;
-        }
-
-        public List<City> findDistinctCities() {
-            String sql = "SELECT DISTINCT city, lat, lng FROM aliweather";
-            return jdbcTemplate.query(sql, (rs, rowNum) -> new City(
-                    rs.getString("city"),
-                    rs.getDouble("lat"),
-                    rs.getDouble("lng")
-            ));
-        }
+    // Pooled so requests reuse open MySQL connections instead of paying the TCP and
+    // auth handshake on every getConnection(). Connections are validated with
+    // Connection.isValid before being handed out and kept alive while idle.
+    // The "h2" profile points this at an embedded H2 database instead of MySQL.
+    @Bean(destroyMethod = "close")
+    public DataSource dataSource(ConnectionPoolMetrics connectionPoolMetrics) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("weatheranywhere");
+        config.setDriverClassName(dataSourceDriverClassName);
+        config.setJdbcUrl(dataSourceUrl);
+        config.setUsername(dataSourceUsername);
+        config.setPassword(dataSourcePassword);
+        config.setMinimumIdle(poolMinIdle);
+        config.setMaximumPoolSize(poolMaxSize);
+        config.setConnectionTimeout(poolConnectionTimeoutMs);
+        config.setValidationTimeout(poolValidationTimeoutMs);
+        config.setKeepaliveTime(poolKeepaliveMs);
+        config.setMaxLifetime(poolMaxLifetimeMs);
+        config.setLeakDetectionThreshold(poolLeakDetectionThresholdMs);
+        // Start even when the database is briefly unavailable; connections are retried on demand
+        config.setInitializationFailTimeout(-1);
+        config.setMetricsTrackerFactory(connectionPoolMetrics);
+        return new HikariDataSource(config);
     }
 
-
-
     @Bean
     public DatabaseHandler databaseHandler(DataSource dataSource) {
         return new DatabaseHandler(dataSource);
@@ -7,6 +7,9 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import se.campusmolndal.easyweather.models.WeatherInfo;
 import se.campusmolndal.easyweather.service.AIArtisticWeatherService;
+import se.campusmolndal.easyweather.service.TinyLfuCache;
+
+import java.util.Map;
 
 @Controller
 public class AIArtisticWeatherController {
@@ -63,12 +66,16 @@ public class AIArtisticWeatherController {
 
     @GetMapping("/weather/ai-cache-info")
     public ResponseEntity<String> getCacheInfo() {
-        int cacheSize = aiArtisticWeatherService.getCacheSize();
+        TinyLfuCache.Stats stats = aiArtisticWeatherService.getCacheStats();
+        Map<String, Object> stored = aiArtisticWeatherService.getContentStoreStats();
         return ResponseEntity.ok().body(String.format("""
             <div style="font-family: Arial, sans-serif; padding: 20px; background: #f0f0f0; border-radius: 10px;">
                 <h3>🤖 AI Artistic Weather Cache</h3>
                 <p><strong>Cached Items:</strong> %d</p>
-                <p><strong>Status:</strong> Active</p>
+                <p><strong>Memory:</strong> %.1f / %.1f MB</p>
+                <p><strong>Hit Rate:</strong> %.1f%% (%d hits, %d misses)</p>
+                <p><strong>Evicted:</strong> %d, <strong>Not admitted:</strong> %d, <strong>Expired:</strong> %d</p>
+                <p><strong>On Disk:</strong> %s entries, %s bytes in %s segments</p>
                 <p><em>Cache helps avoid regenerating the same AI artwork</em></p>
                 <button onclick="clearCache()" style="padding: 10px 20px; background: #ff6b6b; color: white; border: none; border-radius: 5px; cursor: pointer;">Clear Cache</button>
             </div>
@@ -78,7 +85,10 @@ public class AIArtisticWeatherController {
                         .then(() => location.reload());
                 }
             </script>
-            """, cacheSize));
+            """, stats.getSize(), stats.getWeight() / 1048576.0, stats.getMaxWeight() / 1048576.0,
+                stats.getHitRate() * 100, stats.getHits(), stats.getMisses(),
+                stats.getEvictions(), stats.getRejections(), stats.getExpirations(),
+                stored.get("entries"), stored.get("totalBytes"), stored.get("segments")));
     }
 
     @GetMapping("/weather/ai-cache-clear")
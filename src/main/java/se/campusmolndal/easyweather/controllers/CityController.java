@@ -0,0 +1,182 @@
+package se.campusmolndal.easyweather.controllers;
+
+import org.springframework.beans.factory.annotation.Value;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import se.campusmolndal.easyweather.CityRepository.CityRepository;
+import se.campusmolndal.easyweather.database.CityLocationRepository;
+import se.campusmolndal.easyweather.models.City;
+import se.campusmolndal.easyweather.service.CitySuggestionService;
+import se.campusmolndal.easyweather.service.CityTrie;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+public class CityController {
+
+    private static final Logger log = LoggerFactory.getLogger(CityController.class);
+
+    private final CitySuggestionService citySuggestionService;
+    private final CityLocationRepository cityLocationRepository;
+    private final CityRepository cityRepository;
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    @Value("${cities.suggest.max-results:20}")
+    private int maxSuggestions;
+
+    @Value("${cities.area.max-results:500}")
+    private int maxAreaResults;
+
+    @Value("${cities.area.max-radius-km:1000}")
+    private double maxRadiusKm;
+
+    @Value("${cities.area.max-candidates:5000}")
+    private int maxCandidates;
+
+    @Value("${cities.list.max-page-size:1000}")
+    private int maxPageSize;
+
+    public CityController(CitySuggestionService citySuggestionService, CityLocationRepository cityLocationRepository,
+                          CityRepository cityRepository) {
+        this.citySuggestionService = citySuggestionService;
+        this.cityLocationRepository = cityLocationRepository;
+        this.cityRepository = cityRepository;
+    }
+
+    /**
+     * Stored cities in id order, one page at a time: {@code /api/cities?limit=100}, then
+     * {@code /api/cities?after=<next>} with the {@code next} value of the previous page
+     * until it is null. {@code limit=0} returns every remaining city in one response,
+     * for exports; a negative limit is rejected. Rows are written to the response as they are read from the database,
+     * so memory use does not grow with the size of the table.
+     */
+    @GetMapping("/api/cities")
+    public ResponseEntity<?> list(@RequestParam(defaultValue = "0") long after,
+                                  @RequestParam(defaultValue = "100") int limit) {
+        if (limit < 0) {
+            return ResponseEntity.badRequest().body("limit must be positive, or 0 for every remaining city");
+        }
+        int pageSize = limit == 0 ? 0 : Math.min(limit, maxPageSize);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = jsonFactory.createGenerator(out)) {
+                json.writeStartObject();
+                json.writeArrayFieldStart("cities");
+                int[] written = {0};
+                long lastId = cityRepository.forEachCity(after, pageSize, (id, cityName, latitude, longitude) -> {
+                    json.writeStartObject();
+                    json.writeNumberField("id", id);
+                    json.writeStringField("name", cityName);
+                    json.writeNumberField("latitude", latitude);
+                    json.writeNumberField("longitude", longitude);
+                    json.writeEndObject();
+                    written[0]++;
+                });
+                json.writeEndArray();
+                // A full page may be followed by more cities; a short one is the last
+                if (pageSize > 0 && written[0] == pageSize) {
+                    json.writeNumberField("next", lastId);
+                } else {
+                    json.writeNullField("next");
+                }
+                json.writeEndObject();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Autocomplete for the city search box, e.g. {@code /api/cities/suggest?q=gote}.
+     * Matching ignores case and diacritics, so "gote" finds Göteborg.
+     */
+    @GetMapping("/api/cities/suggest")
+    public ResponseEntity<List<Map<String, Object>>> suggest(@RequestParam String q,
+                                                             @RequestParam(defaultValue = "8") int limit) {
+        List<CityTrie.Entry> suggestions = citySuggestionService.suggest(q, Math.min(limit, maxSuggestions));
+        List<Map<String, Object>> body = new ArrayList<>(suggestions.size());
+        for (CityTrie.Entry suggestion : suggestions) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("name", suggestion.getName());
+            if (suggestion.getAlias() != null) {
+                entry.put("alias", suggestion.getAlias());
+            }
+            entry.put("latitude", suggestion.getLatitude());
+            entry.put("longitude", suggestion.getLongitude());
+            body.add(entry);
+        }
+        return ResponseEntity.ok(body);
+    }
+
+    /**
+     * Stored cities within a radius of a point, nearest first, e.g.
+     * {@code /api/cities/near?lat=57.7&lon=11.97&radiusKm=50}. The radius is capped at
+     * {@code cities.area.max-radius-km}.
+     */
+    @GetMapping("/api/cities/near")
+    public ResponseEntity<?> near(@RequestParam double lat, @RequestParam double lon,
+                                  @RequestParam(defaultValue = "50") double radiusKm,
+                                  @RequestParam(defaultValue = "100") int limit) {
+        if (lat < -90 || lat > 90 || lon < -180 || lon > 180 || radiusKm <= 0 || limit <= 0) {
+            return ResponseEntity.badRequest().body("Latitude must be within [-90, 90], longitude within [-180, 180], radiusKm and limit positive");
+        }
+        try {
+            List<CityLocationRepository.CityDistance> matches = cityLocationRepository.findWithinRadius(
+                    lat, lon, Math.min(radiusKm, maxRadiusKm), Math.min(limit, maxAreaResults), maxCandidates);
+            List<Map<String, Object>> body = new ArrayList<>(matches.size());
+            for (CityLocationRepository.CityDistance match : matches) {
+                Map<String, Object> entry = cityEntry(match.getCity());
+                entry.put("distanceKm", Math.round(match.getDistanceKm() * 10) / 10.0);
+                body.add(entry);
+            }
+            return ResponseEntity.ok(body);
+        } catch (SQLException e) {
+            log.error("Radius search failed around {}, {}", lat, lon, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error searching cities");
+        }
+    }
+
+    /**
+     * Stored cities inside a map view, e.g.
+     * {@code /api/cities/in-box?south=55&west=10&north=60&east=20}. A west edge greater
+     * than the east edge means the view crosses the antimeridian.
+     */
+    @GetMapping("/api/cities/in-box")
+    public ResponseEntity<?> inBox(@RequestParam double south, @RequestParam double west,
+                                   @RequestParam double north, @RequestParam double east,
+                                   @RequestParam(defaultValue = "100") int limit) {
+        if (south < -90 || north > 90 || south > north || west < -180 || west > 180 || east < -180 || east > 180 || limit <= 0) {
+            return ResponseEntity.badRequest().body("south <= north must be within [-90, 90], west and east within [-180, 180] and limit positive");
+        }
+        try {
+            List<City> cities = cityLocationRepository.findInBox(south, west, north, east, Math.min(limit, maxAreaResults));
+            List<Map<String, Object>> body = new ArrayList<>(cities.size());
+            for (City city : cities) {
+                body.add(cityEntry(city));
+            }
+            return ResponseEntity.ok(body);
+        } catch (SQLException e) {
+            log.error("Bounding box search failed", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error searching cities");
+        }
+    }
+
+    private static Map<String, Object> cityEntry(City city) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("name", city.getName());
+        entry.put("latitude", city.getLatitude());
+        entry.put("longitude", city.getLongitude());
+        return entry;
+    }
+}
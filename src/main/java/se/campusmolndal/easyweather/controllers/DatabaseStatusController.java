@@ -0,0 +1,31 @@
+package se.campusmolndal.easyweather.controllers;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import se.campusmolndal.easyweather.database.ConnectionPoolMetrics;
+import se.campusmolndal.easyweather.database.ObservationWriter;
+
+import java.util.Map;
+
+@RestController
+public class DatabaseStatusController {
+
+    private final ConnectionPoolMetrics connectionPoolMetrics;
+    private final ObservationWriter observationWriter;
+
+    public DatabaseStatusController(ConnectionPoolMetrics connectionPoolMetrics, ObservationWriter observationWriter) {
+        this.connectionPoolMetrics = connectionPoolMetrics;
+        this.observationWriter = observationWriter;
+    }
+
+    @GetMapping("/api/db/pool-stats")
+    public ResponseEntity<Map<String, Object>> getPoolStats() {
+        return ResponseEntity.ok(connectionPoolMetrics.snapshot());
+    }
+
+    @GetMapping("/api/db/observation-writer")
+    public ResponseEntity<Map<String, Object>> getObservationWriterStats() {
+        return ResponseEntity.ok(observationWriter.getStats());
+    }
+}
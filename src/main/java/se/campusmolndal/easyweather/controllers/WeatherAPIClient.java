@@ -1,167 +1,536 @@
 package se.campusmolndal.easyweather.controllers;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import se.campusmolndal.easyweather.database.*;
 import se.campusmolndal.easyweather.models.City;
+import se.campusmolndal.easyweather.models.Forecast;
 import se.campusmolndal.easyweather.models.WeatherInfo;
 import se.campusmolndal.easyweather.service.CityManager;
+import se.campusmolndal.easyweather.service.CircuitBreaker;
+import se.campusmolndal.easyweather.service.CityNameNormalizer;
 import se.campusmolndal.easyweather.service.CityService;
+import se.campusmolndal.easyweather.service.Gazetteer;
+import se.campusmolndal.easyweather.service.Geohash;
+import se.campusmolndal.easyweather.service.GeocodingResolver;
+import se.campusmolndal.easyweather.service.GeocodingService;
+import se.campusmolndal.easyweather.service.OpenMeteoResponseParser;
+import se.campusmolndal.easyweather.service.SingleFlight;
+import se.campusmolndal.easyweather.service.TtlCache;
+import se.campusmolndal.easyweather.service.UpstreamHttpClient;
 import se.campusmolndal.easyweather.service.WeatherIconService;
 
-import javax.sql.DataSource;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.net.URLEncoder;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.http.HttpResponse;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 public class WeatherAPIClient {
-    private static final String API_BASE_URL = "https://api.open-meteo.com/v1/forecast";
-    private static final String OPENCAGE_GEOCODING_API_URL = "https://api.opencagedata.com/geocode/v1/json";
+    private static final List<String> HOURLY_VARIABLES = List.of("temperature_2m", "weather_code", "wind_speed_10m", "precipitation_probability");
+    private static final List<String> DAILY_VARIABLES = List.of("weather_code", "temperature_2m_max", "temperature_2m_min", "precipitation_sum", "wind_speed_10m_max");
     private final CityService cityService;
     private final WeatherIconService weatherIconService;
 
-    @Value("${opencage.api.key}")
-    private String opencageApiKey;
+    // Forecasts are fetched and cached per geohash tile, keyed by the tile's hash, so
+    // neighbouring suburbs that fall in one tile share a single upstream call and cache entry.
+    private final TtlCache<Long, WeatherInfo> forecastCache;
+    // Hourly/daily forecasts are larger and requested less often, so they get their own cache
+    private final TtlCache<Long, Forecast> detailedForecastCache;
+    private final int tilePrecision;
 
-    @Autowired
-    private DataSource dataSource;
+    // Concurrent requests for the same city or tile share one upstream call.
+    private final SingleFlight<String, City> cityLoads = new SingleFlight<>();
+    private final SingleFlight<Long, WeatherInfo> forecastLoads = new SingleFlight<>();
+    private final SingleFlight<Long, Forecast> detailedForecastLoads = new SingleFlight<>();
+
+    private final UpstreamHttpClient upstreamHttpClient;
+    private final OpenMeteoResponseParser responseParser = new OpenMeteoResponseParser();
+    private final CircuitBreaker forecastBreaker;
+
+    private final GeocodingResolver geocodingResolver;
+    private final CityIndex cityIndex;
+    private final Gazetteer gazetteer;
+    private final ObservationWriter observationWriter;
+
+    // Configurable so load tests can point at a local stub (see UpstreamStubServer)
+    @Value("${openmeteo.base-url:https://api.open-meteo.com/v1/forecast}")
+    private String forecastApiUrl;
 
-    public WeatherAPIClient(CityService cityService, WeatherIconService weatherIconService) {
+    @Autowired
+    public WeatherAPIClient(CityService cityService, WeatherIconService weatherIconService,
+                            UpstreamHttpClient upstreamHttpClient, GeocodingResolver geocodingResolver,
+                            CityIndex cityIndex, Gazetteer gazetteer, ObservationWriter observationWriter,
+                            @Value("${weather.cache.max-entries:500}") int cacheMaxEntries,
+                            @Value("${weather.cache.ttl-minutes:15}") long cacheTtlMinutes,
+                            @Value("${weather.cache.max-stale-minutes:360}") long cacheMaxStaleMinutes,
+                            @Value("${weather.forecast.cache.max-entries:2000}") int forecastCacheMaxEntries,
+                            @Value("${weather.cache.tile-precision:5}") int tilePrecision,
+                            @Value("${weather.breaker.failure-threshold:5}") int breakerFailureThreshold,
+                            @Value("${weather.breaker.open-seconds:30}") long breakerOpenSeconds) {
         this.cityService = cityService;
         this.weatherIconService = weatherIconService;
+        this.upstreamHttpClient = upstreamHttpClient;
+        this.geocodingResolver = geocodingResolver;
+        this.cityIndex = cityIndex;
+        this.gazetteer = gazetteer;
+        this.observationWriter = observationWriter;
+        this.forecastCache = new TtlCache<>(cacheMaxEntries, Duration.ofMinutes(cacheTtlMinutes), Duration.ofMinutes(cacheMaxStaleMinutes));
+        this.detailedForecastCache = new TtlCache<>(forecastCacheMaxEntries, Duration.ofMinutes(cacheTtlMinutes), Duration.ofMinutes(cacheMaxStaleMinutes));
+        this.tilePrecision = tilePrecision;
+        Geohash.checkPrecision(tilePrecision);
+        this.forecastBreaker = new CircuitBreaker("open-meteo", breakerFailureThreshold, Duration.ofSeconds(breakerOpenSeconds));
+    }
+
+    public TtlCache.Stats getForecastCacheStats() {
+        return forecastCache.getStats();
+    }
+
+    public CircuitBreaker getForecastBreaker() {
+        return forecastBreaker;
     }
 
     public WeatherInfo fetchWeather(String cityName) {
         try {
-            City city = fetchAndSaveCityData(cityName);
+            City city = resolveCity(cityName);
             if (city == null) {
                 System.err.println("Failed to fetch city data for " + cityName);
                 return null;
             }
+            return forecastFor(city).join();
+        } catch (CompletionException e) {
+            System.err.println("Failed to fetch weather data: " + e.getCause());
+            return null;
+        } catch (Exception e) {
+            System.err.println("Unexpected error fetching weather: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
 
-            double latitude = city.getLatitude();
-            double longitude = city.getLongitude();
-            URL apiUrl = new URL(API_BASE_URL + "?latitude=" + latitude + "&longitude=" + longitude + "&current=temperature_2m,weather_code,wind_speed_10m&timezone=auto");
-            HttpURLConnection connection = (HttpURLConnection) apiUrl.openConnection();
-
-            connection.setRequestMethod("GET");
-            connection.setConnectTimeout(10000);
-            connection.setReadTimeout(10000);
+    /**
+     * Current weather at an already resolved city, e.g. one found by coordinates.
+     * Returns null when the forecast cannot be fetched and nothing is cached.
+     */
+    public WeatherInfo fetchWeatherAt(City city) {
+        try {
+            return forecastFor(city).join();
+        } catch (CompletionException e) {
+            System.err.println("Failed to fetch weather data: " + e.getCause());
+            return null;
+        }
+    }
 
-            try {
-                int responseCode = connection.getResponseCode();
-                if (responseCode == HttpURLConnection.HTTP_OK) {
-                    return createConnection(connection);
-                } else {
-                    System.err.println("Weather API returned error code: " + responseCode);
-                    return null;
-                }
-            } finally {
-                connection.disconnect();
+    /**
+     * Returns the 7 day hourly and daily forecast for a city, or null when the city or
+     * its forecast cannot be resolved. Served from the last known forecast while the
+     * upstream is unavailable, like {@link #fetchWeather(String)}.
+     */
+    public Forecast fetchForecast(String cityName) {
+        try {
+            City city = resolveCity(cityName);
+            if (city == null) {
+                System.err.println("Failed to fetch city data for " + cityName);
+                return null;
             }
-        } catch (IOException e) {
-            System.err.println("Failed to fetch weather data: " + e.getMessage());
-            e.printStackTrace();
+            long cacheKey = tileKey(city.getLatitude(), city.getLongitude());
+            Forecast cached = detailedForecastCache.get(cacheKey);
+            if (cached != null) {
+                return cached;
+            }
+            // Same as current weather: while Open-Meteo is failing, or another request is
+            // already refreshing this tile, answer with the last known forecast
+            TtlCache.Stale<Forecast> stale = detailedForecastCache.getStale(cacheKey);
+            if (stale != null && (forecastBreaker.getState() == CircuitBreaker.State.OPEN || detailedForecastLoads.isInFlight(cacheKey))) {
+                detailedForecastLoads.executeAsync(cacheKey, () -> fetchAndCacheForecast(cacheKey));
+                return asStaleForecast(stale);
+            }
+            Forecast forecast = detailedForecastLoads.executeAsync(cacheKey, () -> fetchAndCacheForecast(cacheKey))
+                    .exceptionally(e -> null)
+                    .join();
+            return forecast != null || stale == null ? forecast : asStaleForecast(stale);
+        } catch (CompletionException e) {
+            System.err.println("Failed to fetch forecast data: " + e.getCause());
             return null;
         } catch (Exception e) {
-            System.err.println("Unexpected error fetching weather: " + e.getMessage());
+            System.err.println("Unexpected error fetching forecast: " + e.getMessage());
             e.printStackTrace();
             return null;
         }
     }
 
+    private CompletableFuture<Forecast> fetchAndCacheForecast(long cacheKey) {
+        if (!forecastBreaker.allowRequest()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<HttpResponse<InputStream>> call;
+        try {
+            double[] center = Geohash.center(cacheKey, tilePrecision);
+            String url = forecastApiUrl + "?latitude=" + center[0] + "&longitude=" + center[1]
+                    + "&hourly=" + String.join(",", HOURLY_VARIABLES)
+                    + "&daily=" + String.join(",", DAILY_VARIABLES)
+                    + "&forecast_days=7&timeformat=unixtime&timezone=auto";
+            call = upstreamHttpClient.sendAsync(upstreamHttpClient.newGet(url).build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (RuntimeException e) {
+            // The breaker let this call through and must hear how it ended
+            forecastBreaker.recordFailure();
+            return CompletableFuture.failedFuture(e);
+        }
+        return call
+                .thenApply(response -> {
+                    try (InputStream body = response.body()) {
+                        if (response.statusCode() == 200) {
+                            return responseParser.parseForecast(body);
+                        }
+                        System.err.println("Weather API returned error code: " + response.statusCode());
+                        return null;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .whenComplete((forecast, error) -> {
+                    if (forecast != null) {
+                        forecastBreaker.recordSuccess();
+                        detailedForecastCache.put(cacheKey, forecast);
+                    } else {
+                        forecastBreaker.recordFailure();
+                    }
+                });
+    }
+
+    /**
+     * Non-blocking variant of {@link #fetchWeather(String)}. The city lookup runs on the
+     * upstream client's executor and the forecast request is sent asynchronously.
+     * Completes with null when the city or its weather cannot be resolved.
+     */
+    public CompletableFuture<WeatherInfo> fetchWeatherAsync(String cityName) {
+        return resolveCityAsync(cityName)
+                .thenCompose(city -> {
+                    if (city == null) {
+                        System.err.println("Failed to fetch city data for " + cityName);
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    return forecastFor(city);
+                })
+                .exceptionally(e -> {
+                    System.err.println("Failed to fetch weather data: " + e.getMessage());
+                    return null;
+                });
+    }
+
+    /**
+     * Fetches current weather for several cities at once. Unknown cities are resolved
+     * concurrently, cached forecasts are reused, and all remaining tiles are requested
+     * from Open-Meteo in a single multi-coordinate call. Those tiles are registered as
+     * in flight like single-city loads, so concurrent requests for them wait on the
+     * batch instead of sending their own, and tiles another request is already loading
+     * are not requested again. The result keeps the order of the input; cities that
+     * cannot be resolved map to null.
+     */
+    public Map<String, WeatherInfo> fetchWeatherBatch(List<String> cityNames) {
+        Map<String, CompletableFuture<City>> cityLoadsByName = new LinkedHashMap<>();
+        for (String cityName : cityNames) {
+            cityLoadsByName.computeIfAbsent(cityName, name -> resolveCityAsync(name).exceptionally(e -> null));
+        }
+        CompletableFuture.allOf(cityLoadsByName.values().toArray(new CompletableFuture[0])).join();
+
+        Map<String, City> cityByName = new HashMap<>();
+        Map<Long, CompletableFuture<WeatherInfo>> weatherByCell = new HashMap<>();
+        Map<Long, CompletableFuture<WeatherInfo>> claimedCells = new LinkedHashMap<>();
+        for (Map.Entry<String, CompletableFuture<City>> entry : cityLoadsByName.entrySet()) {
+            City city = entry.getValue().join();
+            if (city == null) {
+                continue;
+            }
+            cityByName.put(entry.getKey(), city);
+            long cacheKey = tileKey(city.getLatitude(), city.getLongitude());
+            if (weatherByCell.containsKey(cacheKey)) {
+                continue;
+            }
+            WeatherInfo cached = forecastCache.get(cacheKey);
+            weatherByCell.put(cacheKey, cached != null ? CompletableFuture.completedFuture(cached)
+                    : forecastLoads.executeAsync(cacheKey, () -> claimedCells.computeIfAbsent(cacheKey, key -> new CompletableFuture<>())));
+        }
+        if (!claimedCells.isEmpty()) {
+            fetchAndCacheBatch(claimedCells);
+        }
+
+        Map<Long, WeatherInfo> resolved = new HashMap<>();
+        for (Map.Entry<Long, CompletableFuture<WeatherInfo>> entry : weatherByCell.entrySet()) {
+            WeatherInfo weatherInfo = entry.getValue().exceptionally(e -> null).join();
+            if (weatherInfo == null) {
+                // Falls back to the last known forecast, if there is one
+                TtlCache.Stale<WeatherInfo> stale = forecastCache.getStale(entry.getKey());
+                weatherInfo = stale != null ? asStale(stale) : null;
+            }
+            resolved.put(entry.getKey(), weatherInfo);
+        }
+
+        Map<String, WeatherInfo> results = new LinkedHashMap<>();
+        for (String cityName : cityNames) {
+            City city = cityByName.get(cityName);
+            WeatherInfo weatherInfo = city != null ? resolved.get(tileKey(city.getLatitude(), city.getLongitude())) : null;
+            if (weatherInfo != null) {
+                observationWriter.record(city.getName(), weatherInfo);
+            }
+            results.put(cityName, weatherInfo);
+        }
+        return results;
+    }
+
+    // Completes every claimed tile from one multi-coordinate request; with null when the
+    // breaker is open or the request fails, so waiters fall back to stale data.
+    private void fetchAndCacheBatch(Map<Long, CompletableFuture<WeatherInfo>> claimedCells) {
+        if (!forecastBreaker.allowRequest()) {
+            claimedCells.values().forEach(future -> future.complete(null));
+            return;
+        }
+        List<Long> cells = new ArrayList<>(claimedCells.keySet());
+        CompletableFuture<List<WeatherInfo>> call;
+        try {
+            call = fetchCurrentWeatherBatch(cells);
+        } catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        call.whenComplete((fetched, error) -> {
+            if (error != null) {
+                forecastBreaker.recordFailure();
+                System.err.println("Failed to fetch batch weather data: " + error.getMessage());
+                claimedCells.values().forEach(future -> future.complete(null));
+                return;
+            }
+            forecastBreaker.recordSuccess();
+            for (int i = 0; i < cells.size(); i++) {
+                forecastCache.put(cells.get(i), fetched.get(i));
+                claimedCells.get(cells.get(i)).complete(fetched.get(i));
+            }
+        });
+    }
+
+    private CompletableFuture<List<WeatherInfo>> fetchCurrentWeatherBatch(List<Long> tiles) {
+        StringJoiner latitudes = new StringJoiner(",");
+        StringJoiner longitudes = new StringJoiner(",");
+        for (long tile : tiles) {
+            double[] center = Geohash.center(tile, tilePrecision);
+            latitudes.add(String.valueOf(center[0]));
+            longitudes.add(String.valueOf(center[1]));
+        }
+        String url = forecastApiUrl + "?latitude=" + latitudes + "&longitude=" + longitudes + "&current=temperature_2m,weather_code,wind_speed_10m&timeformat=unixtime&timezone=auto";
+        return upstreamHttpClient.sendAsync(upstreamHttpClient.newGet(url).build(), HttpResponse.BodyHandlers.ofInputStream())
+                .thenApply(response -> {
+                    try (InputStream body = response.body()) {
+                        if (response.statusCode() != 200) {
+                            throw new IOException("Weather API returned error code: " + response.statusCode());
+                        }
+                        List<OpenMeteoResponseParser.CurrentConditions> locations = responseParser.parseCurrentList(body);
+                        if (locations.size() != tiles.size()) {
+                            throw new IOException("Weather API returned " + locations.size() + " locations for " + tiles.size() + " requested");
+                        }
+                        List<WeatherInfo> weather = new ArrayList<>(locations.size());
+                        for (OpenMeteoResponseParser.CurrentConditions current : locations) {
+                            weather.add(toWeatherInfo(current));
+                        }
+                        return weather;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    /**
+     * Re-fetches a city's forecast in the background when its cache entry is missing or
+     * expires within {@code window}. Completes with true when a refresh was performed.
+     */
+    public CompletableFuture<Boolean> refreshIfExpiring(String cityName, Duration window) {
+        City city = resolveCity(cityName);
+        if (city == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        long cacheKey = tileKey(city.getLatitude(), city.getLongitude());
+        Duration remaining = forecastCache.timeToExpiry(cacheKey);
+        if (remaining != null && remaining.compareTo(window) > 0) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return forecastLoads.executeAsync(cacheKey, () -> fetchAndCache(cacheKey))
+                .thenApply(weatherInfo -> weatherInfo != null);
+    }
+
+    // Every weather value handed out is also offered to the history writer
+    private CompletableFuture<WeatherInfo> forecastFor(City city) {
+        return currentWeatherFor(city).thenApply(weatherInfo -> {
+            observationWriter.record(city.getName(), weatherInfo);
+            return weatherInfo;
+        });
+    }
+
+    private CompletableFuture<WeatherInfo> currentWeatherFor(City city) {
+        long cacheKey = tileKey(city.getLatitude(), city.getLongitude());
+        WeatherInfo cached = forecastCache.get(cacheKey);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        // While Open-Meteo is failing, or another request is already refreshing this tile,
+        // answer with the last known forecast instead of waiting on the upstream.
+        TtlCache.Stale<WeatherInfo> stale = forecastCache.getStale(cacheKey);
+        if (stale != null && (forecastBreaker.getState() == CircuitBreaker.State.OPEN || forecastLoads.isInFlight(cacheKey))) {
+            forecastLoads.executeAsync(cacheKey, () -> fetchAndCache(cacheKey));
+            return CompletableFuture.completedFuture(asStale(stale));
+        }
+
+        return forecastLoads.executeAsync(cacheKey, () -> fetchAndCache(cacheKey))
+                .handle((weatherInfo, error) -> {
+                    if (weatherInfo != null) {
+                        return weatherInfo;
+                    }
+                    if (stale != null) {
+                        return asStale(stale);
+                    }
+                    if (error != null) {
+                        throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+                    }
+                    return null;
+                });
+    }
+
+    // Fetches at the tile centre rather than at the requesting city, so the cached
+    // entry does not depend on which city in the tile happened to ask first.
+    private CompletableFuture<WeatherInfo> fetchAndCache(long cacheKey) {
+        if (!forecastBreaker.allowRequest()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<WeatherInfo> call;
+        try {
+            double[] center = Geohash.center(cacheKey, tilePrecision);
+            call = fetchCurrentWeather(center[0], center[1]);
+        } catch (RuntimeException e) {
+            // The breaker let this call through and must hear how it ended
+            forecastBreaker.recordFailure();
+            return CompletableFuture.failedFuture(e);
+        }
+        return call
+                .whenComplete((weatherInfo, error) -> {
+                    if (weatherInfo != null) {
+                        forecastBreaker.recordSuccess();
+                    } else {
+                        forecastBreaker.recordFailure();
+                    }
+                })
+                .thenApply(weatherInfo -> {
+                    if (weatherInfo != null) {
+                        forecastCache.put(cacheKey, weatherInfo);
+                    }
+                    return weatherInfo;
+                });
+    }
+
+    private static WeatherInfo asStale(TtlCache.Stale<WeatherInfo> stale) {
+        return stale.getValue().asStale(stale.getAge().toSeconds());
+    }
+
+    private static Forecast asStaleForecast(TtlCache.Stale<Forecast> stale) {
+        return stale.getValue().asStale(stale.getAge().toSeconds());
+    }
+
+    private CompletableFuture<WeatherInfo> fetchCurrentWeather(double latitude, double longitude) {
+        String url = forecastApiUrl + "?latitude=" + latitude + "&longitude=" + longitude + "&current=temperature_2m,weather_code,wind_speed_10m&timeformat=unixtime&timezone=auto";
+        return upstreamHttpClient.sendAsync(upstreamHttpClient.newGet(url).build(), HttpResponse.BodyHandlers.ofInputStream())
+                .thenApply(response -> {
+                    try (InputStream body = response.body()) {
+                        if (response.statusCode() == 200) {
+                            return parseCurrentWeather(body);
+                        }
+                        System.err.println("Weather API returned error code: " + response.statusCode());
+                        return null;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    // Known cities come straight from the in-memory index; only unknown names are
+    // geocoded, once per name however many requests ask for it concurrently.
+    private City resolveCity(String cityName) {
+        City known = cityIndex.get(cityName);
+        return known != null ? known : cityLoads.execute(cityKey(cityName), () -> fetchAndSaveCityData(cityName));
+    }
+
+    private CompletableFuture<City> resolveCityAsync(String cityName) {
+        City known = cityIndex.get(cityName);
+        return known != null ? CompletableFuture.completedFuture(known)
+                : cityLoads.executeAsync(cityKey(cityName),
+                        () -> CompletableFuture.supplyAsync(() -> fetchAndSaveCityData(cityName), upstreamHttpClient.getExecutor()));
+    }
+
+    private static String cityKey(String cityName) {
+        return CityNameNormalizer.normalize(cityName);
+    }
+
+    // Geohash of the tile containing a coordinate. At the default precision 5 a tile
+    // is about 5 km across, close to the resolution of Open-Meteo's models.
+    long tileKey(double latitude, double longitude) {
+        return Geohash.encode(latitude, longitude, tilePrecision);
+    }
+
     private City fetchAndSaveCityData(String cityName) {
         try {
-            DatabaseHandler databaseHandler = new DatabaseHandler(dataSource);
-            if (databaseHandler.cityExists(cityName)) {
-                return databaseHandler.getCityFromDatabase(cityName);
+            City known = cityIndex.get(cityName);
+            if (known != null) {
+                return known;
             }
 
             // For testing purposes, provide hardcoded coordinates for popular cities
             if (cityName.equalsIgnoreCase("Miami")) {
-                City city = databaseHandler.saveCity("Miami", 25.7617, -80.1918);
+                City city = cityIndex.save("Miami", 25.7617, -80.1918);
                 return city;
             }
             if (cityName.equalsIgnoreCase("Paris")) {
-                City city = databaseHandler.saveCity("Paris", 48.8566, 2.3522);
+                City city = cityIndex.save("Paris", 48.8566, 2.3522);
                 return city;
             }
             if (cityName.equalsIgnoreCase("New York") || cityName.equalsIgnoreCase("NewYork")) {
-                City city = databaseHandler.saveCity("New York", 40.7128, -74.0060);
+                City city = cityIndex.save("New York", 40.7128, -74.0060);
                 return city;
             }
             if (cityName.equalsIgnoreCase("London")) {
-                City city = databaseHandler.saveCity("London", 51.5074, -0.1278);
+                City city = cityIndex.save("London", 51.5074, -0.1278);
                 return city;
             }
             if (cityName.equalsIgnoreCase("Tokyo")) {
-                City city = databaseHandler.saveCity("Tokyo", 35.6762, 139.6503);
+                City city = cityIndex.save("Tokyo", 35.6762, 139.6503);
                 return city;
             }
             if (cityName.equalsIgnoreCase("Berlin")) {
-                City city = databaseHandler.saveCity("Berlin", 52.5200, 13.4050);
+                City city = cityIndex.save("Berlin", 52.5200, 13.4050);
                 return city;
             }
             if (cityName.equalsIgnoreCase("Sydney")) {
-                City city = databaseHandler.saveCity("Sydney", -33.8688, 151.2093);
+                City city = cityIndex.save("Sydney", -33.8688, 151.2093);
                 return city;
             }
 
-            // Check if API key is configured
-            if (opencageApiKey == null || opencageApiKey.equals("YOUR_OPENCAGE_API_KEY_HERE")) {
-                System.err.println("OpenCage API key not configured. Using hardcoded coordinates for testing. Please set opencage.api.key in application.properties for full functionality");
-                return null;
+            // The offline gazetteer, when enabled, answers without a paid OpenCage call
+            Gazetteer.Place place = gazetteer.lookup(cityName);
+            if (place != null) {
+                return cityIndex.save(cityName, place.getLatitude(), place.getLongitude());
             }
 
-            URL url = new URL(OPENCAGE_GEOCODING_API_URL + "?q=" + URLEncoder.encode(cityName, "UTF-8") + "&key=" + opencageApiKey);
-            HttpURLConnection geocodingConnection = (HttpURLConnection) url.openConnection();
-            geocodingConnection.setRequestMethod("GET");
-            geocodingConnection.setConnectTimeout(10000);
-            geocodingConnection.setReadTimeout(10000);
-
-            int responseCode = geocodingConnection.getResponseCode();
-            if (responseCode != HttpURLConnection.HTTP_OK) {
-                System.err.println("Geocoding API returned error code: " + responseCode);
-                geocodingConnection.disconnect();
+            GeocodingService.LocationInfo location = geocodingResolver.resolve(cityName);
+            if (location == null) {
                 return null;
             }
-
-            BufferedReader reader = new BufferedReader(new InputStreamReader(geocodingConnection.getInputStream()));
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
-            }
-            reader.close();
-            geocodingConnection.disconnect();
-
-            JSONObject geocodingResponse = new JSONObject(response.toString());
-            JSONArray results = geocodingResponse.getJSONArray("results");
-            
-            if (results.length() > 0) {
-                JSONObject result = results.getJSONObject(0);
-                double latitude = result.getJSONObject("geometry").getDouble("lat");
-                double longitude = result.getJSONObject("geometry").getDouble("lng");
-
-                City city = databaseHandler.saveCity(cityName, latitude, longitude);
-                return city;
-            } else {
-                System.err.println("No geocoding results found for city: " + cityName);
-                return null;
-            }
-        } catch (IOException e) {
-            System.err.println("IO error during geocoding: " + e.getMessage());
-            e.printStackTrace();
+            return cityIndex.save(cityName, location.getLatitude(), location.getLongitude());
         } catch (SQLException e) {
             System.err.println("Database error: " + e.getMessage());
             e.printStackTrace();
@@ -173,22 +542,14 @@ public class WeatherAPIClient {
         return null;
     }
 
-    WeatherInfo createConnection(HttpURLConnection connection) throws IOException {
-        BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-        StringBuilder response = new StringBuilder();
-        String line;
-        while ((line = reader.readLine()) != null) {
-            response.append(line);
-        }
-        reader.close();
-
-        JSONObject jsonResponse = new JSONObject(response.toString());
+    WeatherInfo parseCurrentWeather(InputStream responseBody) throws IOException {
+        return toWeatherInfo(responseParser.parseCurrent(responseBody));
+    }
 
-        // Extract current data
-        JSONObject currentData = jsonResponse.getJSONObject("current");
-        double temperature = currentData.getDouble("temperature_2m");
-        int weatherCode = currentData.getInt("weather_code");
-        double windSpeed = currentData.getDouble("wind_speed_10m");
+    private WeatherInfo toWeatherInfo(OpenMeteoResponseParser.CurrentConditions current) {
+        double temperature = current.getTemperature();
+        int weatherCode = current.getWeatherCode();
+        double windSpeed = current.getWindSpeed();
 
         // Get weather icon and description
         WeatherIconService.WeatherIcon icon = weatherIconService.getWeatherIcon(weatherCode);
@@ -198,6 +559,7 @@ public class WeatherAPIClient {
         WeatherInfo weatherInfo = new WeatherInfo(temperature, windSpeed, weatherCode);
         weatherInfo.setDescription(description);
         weatherInfo.setIcon(icon);
+        weatherInfo.setObservedAt(current.getTime());
 
         return weatherInfo;
     }
@@ -212,14 +574,4 @@ public class WeatherAPIClient {
             return WEATHER_CODES.getOrDefault(weatherCode, "Unknown weather code");
         }
     }
-    WeatherInfo parseWeatherData(JSONObject jsonResponse) {
-        JSONObject dailyData = jsonResponse.getJSONObject("daily");
-        double temperature = dailyData.getJSONArray("temperature_2m").getDouble(0);
-        double windSpeed = dailyData.getJSONArray("wind_speed_10m").getDouble(0);
-        int weatherCode = dailyData.getJSONArray("weather_code").getInt(0);
-
-        String description = se.campusmolndal.easyweather.controllers.WeatherDescription.getWeatherDescription(weatherCode);
-
-        return new WeatherInfo(temperature, windSpeed, description);
-    }
-}
\ No newline at end of file
+}
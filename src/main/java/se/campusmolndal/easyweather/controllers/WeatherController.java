@@ -3,26 +3,48 @@ package se.campusmolndal.easyweather.controllers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import se.campusmolndal.easyweather.models.City;
+import se.campusmolndal.easyweather.models.Forecast;
 import se.campusmolndal.easyweather.models.WeatherInfo;
 import se.campusmolndal.easyweather.controllers.WeatherAPIClient;
+import se.campusmolndal.easyweather.service.CircuitBreaker;
 import se.campusmolndal.easyweather.service.CityLandmarkService;
+import se.campusmolndal.easyweather.service.HotCityTracker;
+import se.campusmolndal.easyweather.service.NearbyCityService;
+import se.campusmolndal.easyweather.service.TtlCache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @RestController
 public class WeatherController {
 
     private final WeatherAPIClient weatherAPIClient;
     private final CityLandmarkService cityLandmarkService;
+    private final HotCityTracker hotCityTracker;
+    private final NearbyCityService nearbyCityService;
     private static final Logger log = LoggerFactory.getLogger(WeatherController.class);
 
+    @Value("${weather.batch.max-cities:50}")
+    private int maxBatchCities;
+
     @Autowired
-    public WeatherController(WeatherAPIClient weatherAPIClient, CityLandmarkService cityLandmarkService) {
+    public WeatherController(WeatherAPIClient weatherAPIClient, CityLandmarkService cityLandmarkService,
+                             HotCityTracker hotCityTracker, NearbyCityService nearbyCityService) {
         this.weatherAPIClient = weatherAPIClient;
         this.cityLandmarkService = cityLandmarkService;
+        this.hotCityTracker = hotCityTracker;
+        this.nearbyCityService = nearbyCityService;
     }
 
     @GetMapping({"/weather", "/api/weather"})
@@ -35,6 +57,7 @@ public class WeatherController {
 
             WeatherInfo weatherInfo = weatherAPIClient.fetchWeather(city.trim());
             if (weatherInfo != null) {
+                hotCityTracker.recordRequest(city);
                 log.info("Weather for {}: Temperature = {}, Wind Speed = {}, Description = {}",
                         city, weatherInfo.getTemperature(), weatherInfo.getWindSpeed(), weatherInfo.getDescription());
 
@@ -52,6 +75,155 @@ public class WeatherController {
         }
     }
 
+    @GetMapping("/api/weather/batch")
+    public ResponseEntity<?> getWeatherBatch(@RequestParam String cities) {
+        List<String> cityNames = Arrays.stream(cities.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .distinct()
+                .collect(Collectors.toList());
+        if (cityNames.isEmpty()) {
+            return ResponseEntity.badRequest().body("At least one city is required");
+        }
+        if (cityNames.size() > maxBatchCities) {
+            return ResponseEntity.badRequest().body("At most " + maxBatchCities + " cities can be requested at once");
+        }
+
+        try {
+            List<Map<String, Object>> results = new ArrayList<>();
+            weatherAPIClient.fetchWeatherBatch(cityNames).forEach((city, weatherInfo) -> {
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("city", city);
+                entry.put("found", weatherInfo != null);
+                if (weatherInfo != null) {
+                    entry.put("temperature", weatherInfo.getTemperature());
+                    entry.put("windSpeed", weatherInfo.getWindSpeed());
+                    entry.put("weatherCode", weatherInfo.getWeatherCode());
+                    entry.put("description", weatherInfo.getDescription());
+                    entry.put("icon", weatherInfo.getIcon());
+                    entry.put("stale", weatherInfo.isStale());
+                    if (weatherInfo.isStale()) {
+                        entry.put("ageSeconds", weatherInfo.getAgeSeconds());
+                    }
+                }
+                results.add(entry);
+            });
+            return ResponseEntity.ok(results);
+        } catch (Exception e) {
+            log.error("Error fetching batch weather for cities: {}", cities, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error retrieving weather information. Please try again later.");
+        }
+    }
+
+    /**
+     * Weather at the known city nearest to a GPS position, so mobile clients do not
+     * have to geocode first. Resolved from the in-memory spatial index only.
+     */
+    @GetMapping("/api/weather/nearby")
+    public ResponseEntity<?> getNearbyWeather(@RequestParam double lat, @RequestParam double lon) {
+        if (lat < -90 || lat > 90 || lon < -180 || lon > 180) {
+            return ResponseEntity.badRequest().body("Latitude must be within [-90, 90] and longitude within [-180, 180]");
+        }
+        NearbyCityService.NearbyCity nearby = nearbyCityService.nearest(lat, lon);
+        if (nearby == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("No known city near " + lat + ", " + lon);
+        }
+
+        City city = nearby.getCity();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("city", city.getName());
+        body.put("latitude", city.getLatitude());
+        body.put("longitude", city.getLongitude());
+        body.put("distanceKm", Math.round(nearby.getDistanceKm() * 10) / 10.0);
+        WeatherInfo weatherInfo = weatherAPIClient.fetchWeatherAt(city);
+        body.put("found", weatherInfo != null);
+        if (weatherInfo != null) {
+            body.put("temperature", weatherInfo.getTemperature());
+            body.put("windSpeed", weatherInfo.getWindSpeed());
+            body.put("weatherCode", weatherInfo.getWeatherCode());
+            body.put("description", weatherInfo.getDescription());
+            body.put("icon", weatherInfo.getIcon());
+            body.put("stale", weatherInfo.isStale());
+            if (weatherInfo.isStale()) {
+                body.put("ageSeconds", weatherInfo.getAgeSeconds());
+            }
+        }
+        return ResponseEntity.ok(body);
+    }
+
+    @GetMapping("/api/weather/hourly")
+    public ResponseEntity<?> getHourlyForecast(@RequestParam String city) {
+        if (city == null || city.trim().isEmpty()) {
+            return ResponseEntity.badRequest().body("City name is required");
+        }
+        Forecast forecast = weatherAPIClient.fetchForecast(city.trim());
+        if (forecast == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Forecast not found for city: " + city);
+        }
+
+        long[] time = new long[forecast.getHourlyCount()];
+        for (int i = 0; i < time.length; i++) {
+            time[i] = forecast.hourlyTime(i);
+        }
+        Map<String, Object> hourly = new LinkedHashMap<>();
+        hourly.put("time", time);
+        hourly.put("temperature", forecast.getHourlyTemperature());
+        hourly.put("windSpeed", forecast.getHourlyWindSpeed());
+        hourly.put("weatherCode", forecast.getHourlyWeatherCode());
+        hourly.put("precipitationProbability", forecast.getHourlyPrecipitationProbability());
+        return ResponseEntity.ok(forecastBody(city.trim(), forecast, "hourly", hourly));
+    }
+
+    @GetMapping("/api/weather/daily")
+    public ResponseEntity<?> getDailyForecast(@RequestParam String city) {
+        if (city == null || city.trim().isEmpty()) {
+            return ResponseEntity.badRequest().body("City name is required");
+        }
+        Forecast forecast = weatherAPIClient.fetchForecast(city.trim());
+        if (forecast == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Forecast not found for city: " + city);
+        }
+
+        Map<String, Object> daily = new LinkedHashMap<>();
+        daily.put("time", forecast.getDailyTime());
+        daily.put("temperatureMax", forecast.getDailyTemperatureMax());
+        daily.put("temperatureMin", forecast.getDailyTemperatureMin());
+        daily.put("precipitationSum", forecast.getDailyPrecipitationSum());
+        daily.put("windSpeedMax", forecast.getDailyWindSpeedMax());
+        daily.put("weatherCode", forecast.getDailyWeatherCode());
+        return ResponseEntity.ok(forecastBody(city.trim(), forecast, "daily", daily));
+    }
+
+    private Map<String, Object> forecastBody(String city, Forecast forecast, String section, Map<String, Object> columns) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("city", city);
+        body.put("latitude", forecast.getLatitude());
+        body.put("longitude", forecast.getLongitude());
+        body.put("utcOffsetSeconds", forecast.getUtcOffsetSeconds());
+        body.put("stale", forecast.isStale());
+        if (forecast.isStale()) {
+            body.put("ageSeconds", forecast.getAgeSeconds());
+        }
+        body.put(section, columns);
+        return body;
+    }
+
+    @GetMapping("/api/weather/upstream-status")
+    public ResponseEntity<Map<String, Object>> getUpstreamStatus() {
+        CircuitBreaker breaker = weatherAPIClient.getForecastBreaker();
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("upstream", breaker.getName());
+        status.put("state", breaker.getState());
+        status.put("consecutiveFailures", breaker.getConsecutiveFailures());
+        return ResponseEntity.ok(status);
+    }
+
+    @GetMapping("/api/weather/cache-stats")
+    public ResponseEntity<TtlCache.Stats> getCacheStats() {
+        return ResponseEntity.ok(weatherAPIClient.getForecastCacheStats());
+    }
+
     private String buildHtml(String city, WeatherInfo weatherInfo) {
         StringBuilder sb = new StringBuilder();
 
@@ -60,6 +232,11 @@ public class WeatherController {
 
         sb.append("<h2 style='margin-bottom: 15px;'>Weather of ").append(city).append("</h2>");
 
+        if (weatherInfo.isStale()) {
+            sb.append("<p style='margin: 0 0 15px; color: #8a6d3b;'><em>Live weather is temporarily unavailable. Showing data from ")
+                    .append(Math.max(1, weatherInfo.getAgeSeconds() / 60)).append(" minutes ago.</em></p>");
+        }
+
         // Weather info and ASCII art side by side
         sb.append("<div style='display: flex; align-items: flex-start; gap: 20px; margin-bottom: 20px; flex-wrap: wrap;'>");
 
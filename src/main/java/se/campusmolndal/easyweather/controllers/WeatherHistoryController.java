@@ -0,0 +1,123 @@
+package se.campusmolndal.easyweather.controllers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import se.campusmolndal.easyweather.database.CityIndex;
+import se.campusmolndal.easyweather.database.ObservationRollup;
+import se.campusmolndal.easyweather.database.WeatherHistoryRepository;
+import se.campusmolndal.easyweather.database.WeatherHistoryRepository.Resolution;
+import se.campusmolndal.easyweather.models.City;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+@RestController
+public class WeatherHistoryController {
+
+    private static final Logger log = LoggerFactory.getLogger(WeatherHistoryController.class);
+    private static final long DAY_SECONDS = 86400;
+    // Longest ranges served from the finer tables before switching to a coarser one
+    private static final long MAX_RAW_RANGE = 2 * DAY_SECONDS;
+    private static final long MAX_HOURLY_RANGE = 60 * DAY_SECONDS;
+
+    private final WeatherHistoryRepository weatherHistoryRepository;
+    private final ObservationRollup observationRollup;
+    private final CityIndex cityIndex;
+
+    public WeatherHistoryController(WeatherHistoryRepository weatherHistoryRepository, ObservationRollup observationRollup,
+                                    CityIndex cityIndex) {
+        this.weatherHistoryRepository = weatherHistoryRepository;
+        this.observationRollup = observationRollup;
+        this.cityIndex = cityIndex;
+    }
+
+    /**
+     * Stored weather for a city over a time range, e.g.
+     * {@code /api/weather/history?city=Stockholm&from=2024-05-01&to=2024-06-01}.
+     * {@code from} and {@code to} take epoch seconds, an ISO instant or a date and default
+     * to the last 24 hours. {@code resolution} is raw, hourly, daily or auto, which reads
+     * the cheapest table that still covers the range at a useful granularity.
+     */
+    @GetMapping("/api/weather/history")
+    public ResponseEntity<?> getHistory(@RequestParam String city,
+                                        @RequestParam(required = false) String from,
+                                        @RequestParam(required = false) String to,
+                                        @RequestParam(defaultValue = "auto") String resolution) {
+        if (city.trim().isEmpty()) {
+            return ResponseEntity.badRequest().body("City name is required");
+        }
+        long toSeconds;
+        long fromSeconds;
+        Resolution chosen;
+        try {
+            toSeconds = to != null ? parseTime(to) : System.currentTimeMillis() / 1000;
+            fromSeconds = from != null ? parseTime(from) : toSeconds - DAY_SECONDS;
+            chosen = "auto".equalsIgnoreCase(resolution)
+                    ? chooseResolution(fromSeconds, toSeconds)
+                    : Resolution.valueOf(resolution.trim().toUpperCase(Locale.ROOT));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("from and to must be epoch seconds, an ISO instant or a date; "
+                    + "resolution must be auto, raw, hourly or daily");
+        }
+        if (fromSeconds >= toSeconds) {
+            return ResponseEntity.badRequest().body("from must be before to");
+        }
+
+        // Observations are stored under the canonical city name
+        City known = cityIndex.get(city);
+        String cityName = known != null ? known.getName() : city.trim();
+        try {
+            List<Map<String, Object>> points = weatherHistoryRepository.findPoints(cityName, fromSeconds, toSeconds, chosen);
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("city", cityName);
+            body.put("resolution", chosen.name().toLowerCase(Locale.ROOT));
+            body.put("from", fromSeconds);
+            body.put("to", toSeconds);
+            body.put("points", points);
+            return ResponseEntity.ok(body);
+        } catch (SQLException e) {
+            log.error("Failed to read weather history for {}", cityName, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error retrieving weather history");
+        }
+    }
+
+    // Picks the finest table whose point count stays small and whose retention still covers the range
+    private Resolution chooseResolution(long fromSeconds, long toSeconds) {
+        long now = System.currentTimeMillis() / 1000;
+        long range = toSeconds - fromSeconds;
+        if (range <= MAX_RAW_RANGE && retained(fromSeconds, now, observationRollup.getRawRetentionDays())) {
+            return Resolution.RAW;
+        }
+        if (range <= MAX_HOURLY_RANGE && retained(fromSeconds, now, observationRollup.getHourlyRetentionDays())) {
+            return Resolution.HOURLY;
+        }
+        return Resolution.DAILY;
+    }
+
+    private static boolean retained(long fromSeconds, long now, int retentionDays) {
+        return retentionDays <= 0 || fromSeconds >= now - retentionDays * DAY_SECONDS;
+    }
+
+    private static long parseTime(String value) {
+        String trimmed = value.trim();
+        if (trimmed.chars().allMatch(Character::isDigit)) {
+            return Long.parseLong(trimmed);
+        }
+        if (trimmed.length() == 10) {
+            return LocalDate.parse(trimmed).atStartOfDay(ZoneOffset.UTC).toEpochSecond();
+        }
+        return Instant.parse(trimmed).getEpochSecond();
+    }
+}
@@ -0,0 +1,98 @@
+package se.campusmolndal.easyweather.database;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+import se.campusmolndal.easyweather.models.City;
+import se.campusmolndal.easyweather.service.CityNameNormalizer;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-memory copy of the {@code aliweather} table keyed by normalised city name
+ * (see {@link CityNameNormalizer}). Loaded once at startup and kept current
+ * write-through by {@link #save}, so looking up a known city never touches the
+ * database; only inserts of new cities do.
+ */
+@Component
+@DependsOnDatabaseInitialization
+@DependsOn("schemaMigrator")
+public class CityIndex {
+
+    private final DatabaseHandler databaseHandler;
+    private final Map<String, City> cities = new ConcurrentHashMap<>();
+    private final List<Consumer<City>> listeners = new CopyOnWriteArrayList<>();
+
+    public CityIndex(DatabaseHandler databaseHandler) {
+        this.databaseHandler = databaseHandler;
+    }
+
+    @PostConstruct
+    public void load() {
+        try {
+            List<City> stored = databaseHandler.getAllCities();
+            for (City city : stored) {
+                cities.putIfAbsent(CityNameNormalizer.normalize(city.getName()), city);
+            }
+            System.out.println("City index loaded with " + cities.size() + " cities");
+        } catch (SQLException e) {
+            // Start with an empty index; cities are added again as they are requested
+            System.err.println("Could not load city index: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the stored city for a name in any casing or accenting, or null when unknown.
+     */
+    public City get(String cityName) {
+        return cities.get(CityNameNormalizer.normalize(cityName));
+    }
+
+    /**
+     * Stores a city in the database and the index. A city already in the index is
+     * returned as is without a database round trip.
+     */
+    public City save(String cityName, double latitude, double longitude) throws SQLException, IOException {
+        String key = CityNameNormalizer.normalize(cityName);
+        City known = cities.get(key);
+        if (known != null) {
+            return known;
+        }
+        City saved = databaseHandler.saveCity(cityName, latitude, longitude);
+        if (saved == null) {
+            return null;
+        }
+        City previous = cities.putIfAbsent(key, saved);
+        if (previous != null) {
+            return previous;
+        }
+        for (Consumer<City> listener : listeners) {
+            listener.accept(saved);
+        }
+        return saved;
+    }
+
+    /**
+     * Registers a callback for cities added after startup, so derived indexes can
+     * insert them incrementally instead of rebuilding.
+     */
+    public void addListener(Consumer<City> listener) {
+        listeners.add(listener);
+    }
+
+    public List<City> getAll() {
+        return new ArrayList<>(cities.values());
+    }
+
+    public int size() {
+        return cities.size();
+    }
+}
@@ -0,0 +1,152 @@
+package se.campusmolndal.easyweather.database;
+
+import org.springframework.stereotype.Repository;
+import se.campusmolndal.easyweather.models.City;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Area queries over stored cities. Candidates are fetched by bounding box through an
+ * index: the SPATIAL index on {@code aliweather.location} on MySQL (see
+ * {@link SchemaMigrator}), otherwise the (latitude, longitude) B-tree, which narrows
+ * the scan to the latitude band. Exact great-circle distances are then computed here.
+ * Boxes crossing the antimeridian are split in two.
+ */
+@Repository
+public class CityLocationRepository {
+
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180;
+
+    private final DataSource dataSource;
+    private volatile Boolean spatial;
+
+    public CityLocationRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Cities within {@code radiusKm} of a point, nearest first, at most {@code limit}.
+     * At most {@code maxCandidates} rows are read from the bounding box, so in a box
+     * denser than that some cities inside the radius may be missed.
+     */
+    public List<CityDistance> findWithinRadius(double latitude, double longitude, double radiusKm, int limit,
+                                               int maxCandidates) throws SQLException {
+        double latDelta = radiusKm / KM_PER_DEGREE;
+        double south = Math.max(-90, latitude - latDelta);
+        double north = Math.min(90, latitude + latDelta);
+        double west = -180;
+        double east = 180;
+        // Near the poles the box spans every longitude
+        double cosLat = Math.cos(Math.toRadians(Math.max(Math.abs(south), Math.abs(north))));
+        if (north < 90 && south > -90 && cosLat > 0) {
+            double lonDelta = latDelta / cosLat;
+            if (lonDelta < 180) {
+                west = normalizeLongitude(longitude - lonDelta);
+                east = normalizeLongitude(longitude + lonDelta);
+            }
+        }
+
+        List<CityDistance> matches = new ArrayList<>();
+        for (City city : findInBox(south, west, north, east, Math.max(limit, maxCandidates))) {
+            double distanceKm = distanceKm(latitude, longitude, city.getLatitude(), city.getLongitude());
+            if (distanceKm <= radiusKm) {
+                matches.add(new CityDistance(city, distanceKm));
+            }
+        }
+        matches.sort(Comparator.comparingDouble(CityDistance::getDistanceKm));
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    /**
+     * Cities inside a bounding box, at most {@code limit}. A {@code west} greater than
+     * {@code east} denotes a box crossing the antimeridian.
+     */
+    public List<City> findInBox(double south, double west, double north, double east, int limit) throws SQLException {
+        List<City> cities = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection()) {
+            if (west <= east) {
+                queryBox(conn, south, west, north, east, limit, cities);
+            } else {
+                queryBox(conn, south, west, north, 180, limit, cities);
+                queryBox(conn, south, -180, north, east, limit - cities.size(), cities);
+            }
+        }
+        return cities;
+    }
+
+    private void queryBox(Connection conn, double south, double west, double north, double east, int limit,
+                          List<City> into) throws SQLException {
+        if (limit <= 0) {
+            return;
+        }
+        boolean useSpatial = useSpatialIndex(conn);
+        String sql = useSpatial
+                ? "SELECT cityName, latitude, longitude FROM aliweather WHERE MBRContains(ST_GeomFromText(?), location) LIMIT ?"
+                : "SELECT cityName, latitude, longitude FROM aliweather "
+                + "WHERE latitude BETWEEN ? AND ? AND longitude BETWEEN ? AND ? LIMIT ?";
+        try (PreparedStatement selectStmt = conn.prepareStatement(sql)) {
+            if (useSpatial) {
+                // Slightly enlarged so cities exactly on the edge are contained
+                double margin = 1e-9;
+                selectStmt.setString(1, String.format(Locale.ROOT,
+                        "POLYGON((%1$.9f %2$.9f, %3$.9f %2$.9f, %3$.9f %4$.9f, %1$.9f %4$.9f, %1$.9f %2$.9f))",
+                        west - margin, south - margin, east + margin, north + margin));
+                selectStmt.setInt(2, limit);
+            } else {
+                selectStmt.setDouble(1, south);
+                selectStmt.setDouble(2, north);
+                selectStmt.setDouble(3, west);
+                selectStmt.setDouble(4, east);
+                selectStmt.setInt(5, limit);
+            }
+            try (ResultSet rs = selectStmt.executeQuery()) {
+                while (rs.next()) {
+                    into.add(new City(rs.getString(1), rs.getDouble(2), rs.getDouble(3)));
+                }
+            }
+        }
+    }
+
+    private boolean useSpatialIndex(Connection conn) throws SQLException {
+        Boolean useSpatial = spatial;
+        if (useSpatial == null) {
+            useSpatial = SchemaMigrator.isMySql(conn) && SchemaMigrator.hasColumn(conn, "aliweather", "location");
+            spatial = useSpatial;
+        }
+        return useSpatial;
+    }
+
+    private static double normalizeLongitude(double longitude) {
+        return ((longitude + 540) % 360) - 180;
+    }
+
+    static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    public static class CityDistance {
+        private final City city;
+        private final double distanceKm;
+
+        public CityDistance(City city, double distanceKm) {
+            this.city = city;
+            this.distanceKm = distanceKm;
+        }
+
+        public City getCity() { return city; }
+        public double getDistanceKm() { return distanceKm; }
+    }
+}
@@ -0,0 +1,78 @@
+package se.campusmolndal.easyweather.database;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects connection pool metrics from HikariCP: pool occupancy as reported by the
+ * pool itself, plus how long callers waited for a connection and how long they held it.
+ */
+public class ConnectionPoolMetrics implements MetricsTrackerFactory {
+
+    private volatile PoolStats poolStats;
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final AtomicLong maxAcquireNanos = new AtomicLong();
+    private final LongAdder usages = new LongAdder();
+    private final LongAdder usageMillis = new LongAdder();
+    private final LongAdder connectionsCreated = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolStats = poolStats;
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionCreatedMillis(long millis) {
+                connectionsCreated.increment();
+            }
+
+            @Override
+            public void recordConnectionAcquiredNanos(long nanos) {
+                acquisitions.increment();
+                acquireNanos.add(nanos);
+                maxAcquireNanos.accumulateAndGet(nanos, Math::max);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long millis) {
+                usages.increment();
+                usageMillis.add(millis);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+        };
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        PoolStats stats = poolStats;
+        if (stats != null) {
+            metrics.put("active", stats.getActiveConnections());
+            metrics.put("idle", stats.getIdleConnections());
+            metrics.put("total", stats.getTotalConnections());
+            metrics.put("waiting", stats.getPendingThreads());
+            metrics.put("minIdle", stats.getMinConnections());
+            metrics.put("maxSize", stats.getMaxConnections());
+        }
+        long acquired = acquisitions.sum();
+        long used = usages.sum();
+        metrics.put("acquisitions", acquired);
+        metrics.put("averageAcquireMicros", acquired > 0 ? TimeUnit.NANOSECONDS.toMicros(acquireNanos.sum() / acquired) : 0);
+        metrics.put("maxAcquireMicros", TimeUnit.NANOSECONDS.toMicros(maxAcquireNanos.get()));
+        metrics.put("averageUsageMillis", used > 0 ? usageMillis.sum() / used : 0);
+        metrics.put("connectionsCreated", connectionsCreated.sum());
+        metrics.put("timeouts", timeouts.sum());
+        return metrics;
+    }
+}
@@ -1,6 +1,7 @@
 package se.campusmolndal.easyweather.database;
 
 import se.campusmolndal.easyweather.service.CityManager;
+import se.campusmolndal.easyweather.service.CityNameNormalizer;
 import se.campusmolndal.easyweather.models.City;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -8,9 +9,25 @@ import org.springframework.stereotype.Component;
 import javax.sql.DataSource;
 import java.io.IOException;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
 
 public class DatabaseHandler {
+    // Rows are matched on cityKey, the normalised name, so "Paris" and "paris " share one
+    // row, which stays as first saved: a duplicate changes nothing. MySQL has no way to
+    // return the row from an INSERT, so it is read back on the same connection; H2
+    // returns it from the MERGE through FINAL TABLE.
+    private static final String UPSERT_CITY_SQL = "INSERT INTO aliweather (cityKey, cityName, latitude, longitude) VALUES (?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE cityKey = cityKey";
+    private static final String SELECT_CITY_SQL = "SELECT cityName, latitude, longitude FROM aliweather WHERE cityKey = ?";
+    private static final String MERGE_CITY_SQL = "SELECT cityName, latitude, longitude FROM FINAL TABLE (MERGE INTO aliweather t "
+            + "USING (VALUES (CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(255)), CAST(? AS DOUBLE), CAST(? AS DOUBLE))) "
+            + "s (cityKey, cityName, latitude, longitude) ON t.cityKey = s.cityKey "
+            + "WHEN MATCHED THEN UPDATE SET cityKey = t.cityKey "
+            + "WHEN NOT MATCHED THEN INSERT (cityKey, cityName, latitude, longitude) VALUES (s.cityKey, s.cityName, s.latitude, s.longitude))";
+
     private final DataSource dataSource;
+    private volatile Boolean h2;
 
     public DatabaseHandler(DataSource dataSource) {
         this.dataSource = dataSource;
@@ -30,11 +47,11 @@ public class DatabaseHandler {
     }
 
     public boolean cityExists(String cityName) {
-        String checkCitySql = "SELECT COUNT(*) FROM aliweather WHERE cityName = ?";
+        String checkCitySql = "SELECT COUNT(*) FROM aliweather WHERE cityKey = ?";
         try (Connection conn = dataSource.getConnection()) {
             // Don't set catalog - use the default database from connection URL
             try (PreparedStatement checkCityStmt = conn.prepareStatement(checkCitySql)) {
-                checkCityStmt.setString(1, cityName);
+                checkCityStmt.setString(1, CityNameNormalizer.normalize(cityName));
                 ResultSet rs = checkCityStmt.executeQuery();
                 if (rs.next()) {
                     int count = rs.getInt(1);
@@ -51,11 +68,11 @@ public class DatabaseHandler {
         String input = cityName;
         City city = CityManager.getCity(input);
 
-        String getCitySql = "SELECT * FROM aliweather WHERE cityName = ?";
+        String getCitySql = "SELECT cityName, latitude, longitude FROM aliweather WHERE cityKey = ?";
         try (Connection conn = dataSource.getConnection()) {
             // Don't set catalog - use the default database from connection URL
             try (PreparedStatement getCityStmt = conn.prepareStatement(getCitySql)) {
-                getCityStmt.setString(1, cityName);
+                getCityStmt.setString(1, CityNameNormalizer.normalize(cityName));
                 ResultSet rs = getCityStmt.executeQuery();
                 if (rs.next()) {
                     String name = rs.getString("cityName");
@@ -72,33 +89,67 @@ public class DatabaseHandler {
         return null;
     }
 
-    //We need to avoid SQL injection attacks, so we use a prepared statement
-    public City saveCity(String cityName, double latitude, double longitude) throws SQLException, IOException {
-        String checkCitySql = "SELECT COUNT(*) FROM aliweather WHERE cityName = ?";
-        String insertCitySql = "INSERT INTO aliweather (cityName, latitude, longitude) VALUES (?, ?, ?)";
+    /**
+     * Loads every stored city in one pass, used to warm the in-memory {@link CityIndex}.
+     */
+    public List<City> getAllCities() throws SQLException {
+        List<City> cities = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT cityName, latitude, longitude FROM aliweather")) {
+            while (rs.next()) {
+                cities.add(new City(rs.getString("cityName"), rs.getDouble("latitude"), rs.getDouble("longitude")));
+            }
+        }
+        return cities;
+    }
 
+    /**
+     * Inserts the city unless a row with the same normalised name exists, in a single
+     * atomic statement, so concurrent first lookups of one city cannot both insert. An
+     * existing row is left as first saved. The stored row is returned, which differs
+     * from the arguments when another spelling of the name was saved first; on MySQL it
+     * takes a second query on the same connection. Returns null when the write fails.
+     */
+    public City saveCity(String cityName, double latitude, double longitude) throws SQLException, IOException {
         try (Connection conn = dataSource.getConnection()) {
-            // Don't set catalog - use the default database from connection URL
-
-            try (PreparedStatement checkCityStmt = conn.prepareStatement(checkCitySql)) {
-                checkCityStmt.setString(1, cityName);
-                ResultSet rs = checkCityStmt.executeQuery();
-                if (rs.next() && rs.getInt(1) > 0) {
-                    // City already exists, return the weather inquiry for the city
-                    return getCityFromDatabase(cityName);
+            boolean merge = isH2(conn);
+            String cityKey = CityNameNormalizer.normalize(cityName);
+            try (PreparedStatement saveCityStmt = conn.prepareStatement(merge ? MERGE_CITY_SQL : UPSERT_CITY_SQL)) {
+                saveCityStmt.setString(1, cityKey);
+                saveCityStmt.setString(2, cityName);
+                saveCityStmt.setDouble(3, latitude);
+                saveCityStmt.setDouble(4, longitude);
+                if (merge) {
+                    try (ResultSet rs = saveCityStmt.executeQuery()) {
+                        if (rs.next()) {
+                            return new City(rs.getString("cityName"), rs.getDouble("latitude"), rs.getDouble("longitude"));
+                        }
+                    }
+                } else {
+                    saveCityStmt.executeUpdate();
                 }
             }
-
-            try (PreparedStatement insertCityStmt = conn.prepareStatement(insertCitySql)) {
-                insertCityStmt.setString(1, cityName);
-                insertCityStmt.setDouble(2, latitude);
-                insertCityStmt.setDouble(3, longitude);
-                insertCityStmt.executeUpdate();
+            try (PreparedStatement getCityStmt = conn.prepareStatement(SELECT_CITY_SQL)) {
+                getCityStmt.setString(1, cityKey);
+                try (ResultSet rs = getCityStmt.executeQuery()) {
+                    if (rs.next()) {
+                        return new City(rs.getString("cityName"), rs.getDouble("latitude"), rs.getDouble("longitude"));
+                    }
+                }
             }
         } catch (SQLException e) {
             printSQLException(e);
         }
-        // If the city is newly inserted, return the weather inquiry for the city
-        return getCityFromDatabase(cityName);
+        return null;
+    }
+
+    private boolean isH2(Connection conn) throws SQLException {
+        Boolean result = h2;
+        if (result == null) {
+            result = "H2".equalsIgnoreCase(conn.getMetaData().getDatabaseProductName());
+            h2 = result;
+        }
+        return result;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,283 @@
+package se.campusmolndal.easyweather.database;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Incrementally folds new rows of {@code weather_observation} into the hourly and daily
+ * rollup tables (sample count, sum and count for averages, min and max per city and
+ * bucket). Progress is kept as the last rolled-up observation id in
+ * {@code weather_rollup_state}, updated in the same transaction as the rollups, so
+ * every observation is counted exactly once. Each run then applies the retention
+ * policy: raw rows and hourly buckets older than their configured age are deleted,
+ * leaving coarser data for old ranges.
+ */
+@Component
+public class ObservationRollup {
+
+    static final int HOUR_SECONDS = 3600;
+    static final int DAY_SECONDS = 86400;
+
+    private static final String STATE_NAME = "observations";
+    private static final String AGGREGATE_SQL = "SELECT cityName, observedAt - MOD(observedAt, " + HOUR_SECONDS + ") AS bucketStart, "
+            + "COUNT(*), SUM(temperature), COUNT(temperature), MIN(temperature), MAX(temperature), "
+            + "SUM(windSpeed), COUNT(windSpeed), MAX(windSpeed) "
+            + "FROM weather_observation WHERE id > ? AND id <= ? "
+            + "GROUP BY cityName, observedAt - MOD(observedAt, " + HOUR_SECONDS + ")";
+    // Merges a partial bucket into an existing one; NULL means no value was observed
+    private static final String UPSERT_SQL = "INSERT INTO %s (cityName, bucketStart, samples, temperatureSum, temperatureCount, "
+            + "temperatureMin, temperatureMax, windSpeedSum, windSpeedCount, windSpeedMax) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE samples = samples + VALUES(samples), "
+            + "temperatureSum = COALESCE(temperatureSum + VALUES(temperatureSum), temperatureSum, VALUES(temperatureSum)), "
+            + "temperatureCount = temperatureCount + VALUES(temperatureCount), "
+            + "temperatureMin = LEAST(COALESCE(temperatureMin, VALUES(temperatureMin)), COALESCE(VALUES(temperatureMin), temperatureMin)), "
+            + "temperatureMax = GREATEST(COALESCE(temperatureMax, VALUES(temperatureMax)), COALESCE(VALUES(temperatureMax), temperatureMax)), "
+            + "windSpeedSum = COALESCE(windSpeedSum + VALUES(windSpeedSum), windSpeedSum, VALUES(windSpeedSum)), "
+            + "windSpeedCount = windSpeedCount + VALUES(windSpeedCount), "
+            + "windSpeedMax = GREATEST(COALESCE(windSpeedMax, VALUES(windSpeedMax)), COALESCE(VALUES(windSpeedMax), windSpeedMax))";
+
+    private final DataSource dataSource;
+
+    @Value("${weather.history.enabled:true}")
+    private boolean enabled;
+
+    @Value("${weather.history.rollup-max-rows:100000}")
+    private long maxRowsPerRun;
+
+    @Value("${weather.history.raw-retention-days:7}")
+    private int rawRetentionDays;
+
+    @Value("${weather.history.hourly-retention-days:90}")
+    private int hourlyRetentionDays;
+
+    @Value("${weather.history.daily-retention-days:0}")
+    private int dailyRetentionDays;
+
+    public ObservationRollup(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Scheduled(fixedDelayString = "${weather.history.rollup-interval-ms:300000}", initialDelayString = "${weather.history.rollup-interval-ms:300000}")
+    public void run() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int buckets = rollUp();
+            applyRetention(System.currentTimeMillis() / 1000);
+            if (buckets > 0) {
+                System.out.println("Rolled up observations into " + buckets + " hourly buckets");
+            }
+        } catch (SQLException e) {
+            DatabaseHandler.printSQLException(e);
+        }
+    }
+
+    /**
+     * Rolls up observations added since the previous run. Returns the number of hourly
+     * buckets touched.
+     */
+    public int rollUp() throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                long last = readWatermark(conn);
+                long newest = maxObservationId(conn);
+                if (newest <= last) {
+                    conn.commit();
+                    return 0;
+                }
+                long upTo = Math.min(newest, last + maxRowsPerRun);
+
+                List<Bucket> hourly = aggregate(conn, last, upTo);
+                Map<String, Bucket> daily = new LinkedHashMap<>();
+                for (Bucket bucket : hourly) {
+                    long dayStart = bucket.bucketStart - Math.floorMod(bucket.bucketStart, DAY_SECONDS);
+                    daily.merge(bucket.cityName + '\u0000' + dayStart, bucket.withStart(dayStart), Bucket::merge);
+                }
+                upsert(conn, "weather_rollup_hourly", hourly);
+                upsert(conn, "weather_rollup_daily", new ArrayList<>(daily.values()));
+                writeWatermark(conn, upTo);
+                conn.commit();
+                return hourly.size();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    public void applyRetention(long nowSeconds) throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            if (rawRetentionDays > 0) {
+                // Only rows that have already been rolled up may go
+                try (PreparedStatement deleteStmt = conn.prepareStatement(
+                        "DELETE FROM weather_observation WHERE id <= ? AND observedAt < ?")) {
+                    deleteStmt.setLong(1, readWatermark(conn));
+                    deleteStmt.setLong(2, nowSeconds - (long) rawRetentionDays * DAY_SECONDS);
+                    deleteStmt.executeUpdate();
+                }
+            }
+            deleteBucketsBefore(conn, "weather_rollup_hourly", hourlyRetentionDays, nowSeconds);
+            deleteBucketsBefore(conn, "weather_rollup_daily", dailyRetentionDays, nowSeconds);
+        }
+    }
+
+    public int getRawRetentionDays() {
+        return rawRetentionDays;
+    }
+
+    public int getHourlyRetentionDays() {
+        return hourlyRetentionDays;
+    }
+
+    private static void deleteBucketsBefore(Connection conn, String table, int retentionDays, long nowSeconds) throws SQLException {
+        if (retentionDays <= 0) {
+            return;
+        }
+        try (PreparedStatement deleteStmt = conn.prepareStatement("DELETE FROM " + table + " WHERE bucketStart < ?")) {
+            deleteStmt.setLong(1, nowSeconds - (long) retentionDays * DAY_SECONDS);
+            deleteStmt.executeUpdate();
+        }
+    }
+
+    private static long readWatermark(Connection conn) throws SQLException {
+        try (PreparedStatement selectStmt = conn.prepareStatement("SELECT lastObservationId FROM weather_rollup_state WHERE name = ?")) {
+            selectStmt.setString(1, STATE_NAME);
+            try (ResultSet rs = selectStmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    private static void writeWatermark(Connection conn, long observationId) throws SQLException {
+        try (PreparedStatement upsertStmt = conn.prepareStatement("INSERT INTO weather_rollup_state (name, lastObservationId) VALUES (?, ?) "
+                + "ON DUPLICATE KEY UPDATE lastObservationId = VALUES(lastObservationId)")) {
+            upsertStmt.setString(1, STATE_NAME);
+            upsertStmt.setLong(2, observationId);
+            upsertStmt.executeUpdate();
+        }
+    }
+
+    private static long maxObservationId(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(id) FROM weather_observation")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private static List<Bucket> aggregate(Connection conn, long afterId, long upToId) throws SQLException {
+        List<Bucket> buckets = new ArrayList<>();
+        try (PreparedStatement aggregateStmt = conn.prepareStatement(AGGREGATE_SQL)) {
+            aggregateStmt.setLong(1, afterId);
+            aggregateStmt.setLong(2, upToId);
+            try (ResultSet rs = aggregateStmt.executeQuery()) {
+                while (rs.next()) {
+                    buckets.add(new Bucket(rs.getString(1), rs.getLong(2), rs.getInt(3),
+                            nullableDouble(rs, 4), rs.getInt(5), nullableDouble(rs, 6), nullableDouble(rs, 7),
+                            nullableDouble(rs, 8), rs.getInt(9), nullableDouble(rs, 10)));
+                }
+            }
+        }
+        return buckets;
+    }
+
+    private static void upsert(Connection conn, String table, List<Bucket> buckets) throws SQLException {
+        if (buckets.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement upsertStmt = conn.prepareStatement(String.format(UPSERT_SQL, table))) {
+            for (Bucket bucket : buckets) {
+                upsertStmt.setString(1, bucket.cityName);
+                upsertStmt.setLong(2, bucket.bucketStart);
+                upsertStmt.setInt(3, bucket.samples);
+                setNullableDouble(upsertStmt, 4, bucket.temperatureSum);
+                upsertStmt.setInt(5, bucket.temperatureCount);
+                setNullableDouble(upsertStmt, 6, bucket.temperatureMin);
+                setNullableDouble(upsertStmt, 7, bucket.temperatureMax);
+                setNullableDouble(upsertStmt, 8, bucket.windSpeedSum);
+                upsertStmt.setInt(9, bucket.windSpeedCount);
+                setNullableDouble(upsertStmt, 10, bucket.windSpeedMax);
+                upsertStmt.addBatch();
+            }
+            upsertStmt.executeBatch();
+        }
+    }
+
+    static Double nullableDouble(ResultSet rs, int column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    private static void setNullableDouble(PreparedStatement statement, int index, Double value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.DOUBLE);
+        } else {
+            statement.setDouble(index, value);
+        }
+    }
+
+    private static final class Bucket {
+        private final String cityName;
+        private final long bucketStart;
+        private final int samples;
+        private final Double temperatureSum;
+        private final int temperatureCount;
+        private final Double temperatureMin;
+        private final Double temperatureMax;
+        private final Double windSpeedSum;
+        private final int windSpeedCount;
+        private final Double windSpeedMax;
+
+        Bucket(String cityName, long bucketStart, int samples, Double temperatureSum, int temperatureCount,
+               Double temperatureMin, Double temperatureMax, Double windSpeedSum, int windSpeedCount, Double windSpeedMax) {
+            this.cityName = cityName;
+            this.bucketStart = bucketStart;
+            this.samples = samples;
+            this.temperatureSum = temperatureSum;
+            this.temperatureCount = temperatureCount;
+            this.temperatureMin = temperatureMin;
+            this.temperatureMax = temperatureMax;
+            this.windSpeedSum = windSpeedSum;
+            this.windSpeedCount = windSpeedCount;
+            this.windSpeedMax = windSpeedMax;
+        }
+
+        Bucket withStart(long start) {
+            return new Bucket(cityName, start, samples, temperatureSum, temperatureCount, temperatureMin, temperatureMax,
+                    windSpeedSum, windSpeedCount, windSpeedMax);
+        }
+
+        Bucket merge(Bucket other) {
+            return new Bucket(cityName, bucketStart, samples + other.samples,
+                    add(temperatureSum, other.temperatureSum), temperatureCount + other.temperatureCount,
+                    pick(temperatureMin, other.temperatureMin, true), pick(temperatureMax, other.temperatureMax, false),
+                    add(windSpeedSum, other.windSpeedSum), windSpeedCount + other.windSpeedCount,
+                    pick(windSpeedMax, other.windSpeedMax, false));
+        }
+
+        private static Double add(Double a, Double b) {
+            return a == null ? b : b == null ? a : a + b;
+        }
+
+        private static Double pick(Double a, Double b, boolean min) {
+            if (a == null || b == null) {
+                return a == null ? b : a;
+            }
+            return min ? Math.min(a, b) : Math.max(a, b);
+        }
+    }
+}
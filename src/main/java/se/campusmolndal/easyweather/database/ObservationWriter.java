@@ -0,0 +1,242 @@
+package se.campusmolndal.easyweather.database;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import se.campusmolndal.easyweather.models.WeatherInfo;
+import se.campusmolndal.easyweather.service.CityNameNormalizer;
+import se.campusmolndal.easyweather.service.TtlCache;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind persistence of fetched weather into {@code weather_observation}.
+ * {@link #record} only offers to a bounded queue and never blocks the caller; a single
+ * background thread drains it into multi-row INSERTs once {@code batch-size} rows are
+ * waiting or {@code flush-interval-ms} has passed. When the database lags, the queue
+ * fills and new observations are dropped and counted rather than slowing requests
+ * down; failed batches are retried with backoff before being given up.
+ */
+@Component
+public class ObservationWriter {
+
+    private static final String INSERT_PREFIX = "INSERT INTO weather_observation (cityName, observedAt, temperature, windSpeed, weatherCode) VALUES ";
+    // A row already stored for the city and time is kept as is
+    private static final String INSERT_SUFFIX = " ON DUPLICATE KEY UPDATE observedAt = observedAt";
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private final DataSource dataSource;
+    private final BlockingQueue<Observation> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final boolean enabled;
+    // The same upstream observation is served to a city many times. The unique key on
+    // (cityName, observedAt) stores it once; this cache spares the database most repeats,
+    // keyed by the city's normalised name and the observation time
+    private final TtlCache<String, Boolean> recorded;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public ObservationWriter(DataSource dataSource,
+                             @Value("${weather.history.enabled:true}") boolean enabled,
+                             @Value("${weather.history.queue-capacity:10000}") int queueCapacity,
+                             @Value("${weather.history.batch-size:200}") int batchSize,
+                             @Value("${weather.history.flush-interval-ms:2000}") long flushIntervalMillis,
+                             @Value("${weather.cache.ttl-minutes:15}") long cacheTtlMinutes) {
+        this.dataSource = dataSource;
+        this.enabled = enabled;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.recorded = new TtlCache<>(10_000, Duration.ofMinutes(cacheTtlMinutes));
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::run, "observation-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Queues an observation for a city, stamped with the time Open-Meteo reports for it.
+     * Stale values and repeats of an observation already recorded for the city are
+     * ignored, also when several requests offer it at once.
+     */
+    public void record(String cityName, WeatherInfo weatherInfo) {
+        if (!running || weatherInfo == null || weatherInfo.isStale()) {
+            return;
+        }
+        long observedAt = weatherInfo.getObservedAt();
+        // Without an upstream time the instance itself identifies the observation
+        String key = CityNameNormalizer.normalize(cityName) + '\u0000'
+                + (observedAt > 0 ? observedAt : "@" + System.identityHashCode(weatherInfo));
+        if (recorded.putIfAbsent(key, Boolean.TRUE) != null) {
+            return;
+        }
+        Observation observation = new Observation(cityName, observedAt > 0 ? observedAt : System.currentTimeMillis() / 1000,
+                weatherInfo.getTemperature(), weatherInfo.getWindSpeed(), weatherInfo.getWeatherCode());
+        if (!queue.offer(observation)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("queued", queue.size());
+        stats.put("written", written.get());
+        stats.put("dropped", dropped.get());
+        stats.put("failedBatches", failedBatches.get());
+        return stats;
+    }
+
+    private void run() {
+        List<Observation> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                fillBatch(batch);
+            } catch (InterruptedException e) {
+                // Shutting down: write whatever is still queued
+                queue.drainTo(batch, batchSize - batch.size());
+            }
+            if (!batch.isEmpty()) {
+                writeWithRetry(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    // Waits for the first row, then collects more until the batch is full or the flush interval ends
+    private void fillBatch(List<Observation> batch) throws InterruptedException {
+        Observation first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                return;
+            }
+            Observation next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void writeWithRetry(List<Observation> batch) {
+        long backoff = 500;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                insert(batch);
+                written.addAndGet(batch.size());
+                return;
+            } catch (SQLException e) {
+                System.err.println("Failed to write " + batch.size() + " observations (attempt " + attempt + "): " + e.getMessage());
+                if (attempt == MAX_ATTEMPTS || !running) {
+                    break;
+                }
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                backoff = Math.min(MAX_BACKOFF_MILLIS, backoff * 4);
+            }
+        }
+        failedBatches.incrementAndGet();
+        dropped.addAndGet(batch.size());
+    }
+
+    private void insert(List<Observation> batch) throws SQLException {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + INSERT_SUFFIX.length() + batch.size() * 16).append(INSERT_PREFIX);
+        for (int i = 0; i < batch.size(); i++) {
+            sql.append(i == 0 ? "(?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?)");
+        }
+        sql.append(INSERT_SUFFIX);
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement insertStmt = conn.prepareStatement(sql.toString())) {
+            int index = 1;
+            for (Observation observation : batch) {
+                insertStmt.setString(index++, observation.cityName);
+                insertStmt.setLong(index++, observation.observedAt);
+                setDouble(insertStmt, index++, observation.temperature);
+                setDouble(insertStmt, index++, observation.windSpeed);
+                if (observation.weatherCode >= 0) {
+                    insertStmt.setInt(index++, observation.weatherCode);
+                } else {
+                    insertStmt.setNull(index++, Types.INTEGER);
+                }
+            }
+            insertStmt.executeUpdate();
+        }
+    }
+
+    // Values missing from the upstream response are NaN and stored as NULL
+    private static void setDouble(PreparedStatement statement, int index, double value) throws SQLException {
+        if (Double.isNaN(value)) {
+            statement.setNull(index, Types.DOUBLE);
+        } else {
+            statement.setDouble(index, value);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            try {
+                worker.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static final class Observation {
+        private final String cityName;
+        private final long observedAt;
+        private final double temperature;
+        private final double windSpeed;
+        private final int weatherCode;
+
+        Observation(String cityName, long observedAt, double temperature, double windSpeed, int weatherCode) {
+            this.cityName = cityName;
+            this.observedAt = observedAt;
+            this.temperature = temperature;
+            this.windSpeed = windSpeed;
+            this.weatherCode = weatherCode;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package se.campusmolndal.easyweather.database;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.stereotype.Component;
+import se.campusmolndal.easyweather.service.CityNameNormalizer;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Brings tables created by older versions up to date with {@code schema.sql}, whose
+ * {@code CREATE TABLE IF NOT EXISTS} statements leave existing tables untouched. Runs
+ * once at startup after schema.sql and before the city index is loaded; every step
+ * checks the current schema first, so running it again is a no-op.
+ */
+@Component
+@DependsOnDatabaseInitialization
+public class SchemaMigrator {
+
+    private final DataSource dataSource;
+
+    public SchemaMigrator(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @PostConstruct
+    public void migrate() {
+        try (Connection conn = dataSource.getConnection()) {
+            migrateCityKey(conn);
+            migrateLocation(conn);
+            migrateObservationKey(conn);
+        } catch (SQLException e) {
+            System.err.println("Schema migration failed");
+            DatabaseHandler.printSQLException(e);
+        }
+    }
+
+    /**
+     * Adds {@code aliweather.cityKey}, the normalised city name, and fills it in. Rows
+     * whose names normalise to the same key ("Paris", "paris", "PARIS ") are collapsed
+     * into the oldest one. The unique index is checked on every startup, even when no
+     * key needed changing.
+     */
+    private void migrateCityKey(Connection conn) throws SQLException {
+        boolean added = false;
+        if (!hasColumn(conn, "aliweather", "cityKey")) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("ALTER TABLE aliweather ADD COLUMN cityKey VARCHAR(255)");
+            }
+            added = true;
+        }
+
+        Map<String, Long> keptByKey = new HashMap<>();
+        Map<Long, String> keyUpdates = new HashMap<>();
+        List<Long> duplicates = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, cityName, cityKey FROM aliweather ORDER BY id")) {
+            while (rs.next()) {
+                long id = rs.getLong(1);
+                String key = CityNameNormalizer.normalize(rs.getString(2));
+                if (keptByKey.putIfAbsent(key, id) != null) {
+                    duplicates.add(id);
+                } else if (!key.equals(rs.getString(3))) {
+                    keyUpdates.put(id, key);
+                }
+            }
+        }
+        if (duplicates.isEmpty() && keyUpdates.isEmpty() && !added) {
+            // Keys are already clean, but an earlier run may have stopped before the index
+            ensureCityKeyIndex(conn);
+            return;
+        }
+
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            // Duplicates go first so that no update collides with a key they still hold
+            try (PreparedStatement deleteStmt = conn.prepareStatement("DELETE FROM aliweather WHERE id = ?")) {
+                for (long id : duplicates) {
+                    deleteStmt.setLong(1, id);
+                    deleteStmt.addBatch();
+                }
+                deleteStmt.executeBatch();
+            }
+            try (PreparedStatement updateStmt = conn.prepareStatement("UPDATE aliweather SET cityKey = ? WHERE id = ?")) {
+                for (Map.Entry<Long, String> update : keyUpdates.entrySet()) {
+                    updateStmt.setString(1, update.getValue());
+                    updateStmt.setLong(2, update.getKey());
+                    updateStmt.addBatch();
+                }
+                updateStmt.executeBatch();
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+        ensureCityKeyIndex(conn);
+        System.out.println("Migrated aliweather.cityKey: " + keyUpdates.size() + " keys set, "
+                + duplicates.size() + " duplicate cities removed");
+    }
+
+    private static void ensureCityKeyIndex(Connection conn) throws SQLException {
+        if (!hasIndex(conn, "aliweather", "uk_aliweather_city_key")) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("CREATE UNIQUE INDEX uk_aliweather_city_key ON aliweather (cityKey)");
+                stmt.executeUpdate("ALTER TABLE aliweather MODIFY COLUMN cityKey VARCHAR(255) NOT NULL");
+            }
+        }
+    }
+
+    /**
+     * Indexes city coordinates for area queries. Every database gets a B-tree index on
+     * (latitude, longitude); MySQL additionally gets {@code location}, a POINT(longitude,
+     * latitude) generated from the coordinates, with a SPATIAL index. Being a stored
+     * generated column it is filled for existing rows by the ALTER itself and kept
+     * current on every write without changes to the insert statements.
+     */
+    private void migrateLocation(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            if (!hasIndex(conn, "aliweather", "idx_aliweather_lat_lon")) {
+                stmt.executeUpdate("CREATE INDEX idx_aliweather_lat_lon ON aliweather (latitude, longitude)");
+            }
+            if (isMySql(conn) && !hasColumn(conn, "aliweather", "location")) {
+                stmt.executeUpdate("ALTER TABLE aliweather "
+                        + "ADD COLUMN location POINT GENERATED ALWAYS AS (POINT(longitude, latitude)) STORED NOT NULL SRID 0, "
+                        + "ADD SPATIAL INDEX idx_aliweather_location (location)");
+                System.out.println("Added spatial index on aliweather.location");
+            }
+        }
+    }
+
+    /**
+     * Makes (cityName, observedAt) unique in {@code weather_observation}, so an
+     * observation is stored once however often it is written. Older tables had a plain
+     * index on those columns; repeated rows are removed, keeping the first, and the
+     * unique index replaces the plain one.
+     */
+    private void migrateObservationKey(Connection conn) throws SQLException {
+        if (!hasColumn(conn, "weather_observation", "observedAt")
+                || hasIndex(conn, "weather_observation", "uk_observation_city_time")) {
+            return;
+        }
+        try (Statement stmt = conn.createStatement()) {
+            // The derived table lets MySQL read the table it deletes from
+            int removed = stmt.executeUpdate("DELETE FROM weather_observation WHERE id NOT IN "
+                    + "(SELECT id FROM (SELECT MIN(id) AS id FROM weather_observation GROUP BY cityName, observedAt) kept)");
+            stmt.executeUpdate("CREATE UNIQUE INDEX uk_observation_city_time ON weather_observation (cityName, observedAt)");
+            if (hasIndex(conn, "weather_observation", "idx_observation_city_time")) {
+                stmt.executeUpdate("DROP INDEX idx_observation_city_time ON weather_observation");
+            }
+            System.out.println("Made weather_observation unique per city and time, " + removed + " repeated rows removed");
+        }
+    }
+
+    static boolean isMySql(Connection conn) throws SQLException {
+        return "MySQL".equalsIgnoreCase(conn.getMetaData().getDatabaseProductName());
+    }
+
+    static boolean hasColumn(Connection conn, String table, String column) throws SQLException {
+        DatabaseMetaData metaData = conn.getMetaData();
+        try (ResultSet rs = metaData.getColumns(conn.getCatalog(), null, identifier(metaData, table), null)) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("COLUMN_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    static boolean hasIndex(Connection conn, String table, String index) throws SQLException {
+        DatabaseMetaData metaData = conn.getMetaData();
+        try (ResultSet rs = metaData.getIndexInfo(conn.getCatalog(), null, identifier(metaData, table), false, false)) {
+            while (rs.next()) {
+                if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Metadata lookups take table names in the case the database stores them in
+    private static String identifier(DatabaseMetaData metaData, String name) throws SQLException {
+        return metaData.storesUpperCaseIdentifiers() ? name.toUpperCase(Locale.ROOT) : name;
+    }
+}
@@ -0,0 +1,95 @@
+package se.campusmolndal.easyweather.database;
+
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Range reads over stored weather history: raw observations, or the hourly and daily
+ * rollups maintained by {@link ObservationRollup}. Every query is a range scan on the
+ * (cityName, time) index of the table it reads.
+ */
+@Repository
+public class WeatherHistoryRepository {
+
+    public enum Resolution {
+        RAW, HOURLY, DAILY
+    }
+
+    private final DataSource dataSource;
+
+    public WeatherHistoryRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Returns the points for a city with a time in [from, to), oldest first. Times are
+     * epoch seconds; for rollups a point's time is the start of its bucket.
+     */
+    public List<Map<String, Object>> findPoints(String cityName, long from, long to, Resolution resolution) throws SQLException {
+        return resolution == Resolution.RAW
+                ? findObservations(cityName, from, to)
+                : findBuckets(resolution == Resolution.HOURLY ? "weather_rollup_hourly" : "weather_rollup_daily", cityName, from, to);
+    }
+
+    private List<Map<String, Object>> findObservations(String cityName, long from, long to) throws SQLException {
+        List<Map<String, Object>> points = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement selectStmt = conn.prepareStatement("SELECT observedAt, temperature, windSpeed, weatherCode "
+                     + "FROM weather_observation WHERE cityName = ? AND observedAt >= ? AND observedAt < ? ORDER BY observedAt")) {
+            selectStmt.setString(1, cityName);
+            selectStmt.setLong(2, from);
+            selectStmt.setLong(3, to);
+            try (ResultSet rs = selectStmt.executeQuery()) {
+                while (rs.next()) {
+                    Map<String, Object> point = new LinkedHashMap<>();
+                    point.put("time", rs.getLong(1));
+                    point.put("temperature", ObservationRollup.nullableDouble(rs, 2));
+                    point.put("windSpeed", ObservationRollup.nullableDouble(rs, 3));
+                    int weatherCode = rs.getInt(4);
+                    point.put("weatherCode", rs.wasNull() ? null : weatherCode);
+                    points.add(point);
+                }
+            }
+        }
+        return points;
+    }
+
+    private List<Map<String, Object>> findBuckets(String table, String cityName, long from, long to) throws SQLException {
+        List<Map<String, Object>> points = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement selectStmt = conn.prepareStatement("SELECT bucketStart, samples, temperatureSum, temperatureCount, "
+                     + "temperatureMin, temperatureMax, windSpeedSum, windSpeedCount, windSpeedMax FROM " + table
+                     + " WHERE cityName = ? AND bucketStart >= ? AND bucketStart < ? ORDER BY bucketStart")) {
+            selectStmt.setString(1, cityName);
+            selectStmt.setLong(2, from);
+            selectStmt.setLong(3, to);
+            try (ResultSet rs = selectStmt.executeQuery()) {
+                while (rs.next()) {
+                    Map<String, Object> point = new LinkedHashMap<>();
+                    point.put("time", rs.getLong(1));
+                    point.put("samples", rs.getInt(2));
+                    point.put("temperatureAvg", average(ObservationRollup.nullableDouble(rs, 3), rs.getInt(4)));
+                    point.put("temperatureMin", ObservationRollup.nullableDouble(rs, 5));
+                    point.put("temperatureMax", ObservationRollup.nullableDouble(rs, 6));
+                    point.put("windSpeedAvg", average(ObservationRollup.nullableDouble(rs, 7), rs.getInt(8)));
+                    point.put("windSpeedMax", ObservationRollup.nullableDouble(rs, 9));
+                    points.add(point);
+                }
+            }
+        }
+        return points;
+    }
+
+    private static Double average(Double sum, int count) {
+        return sum == null || count == 0 ? null : sum / count;
+    }
+}
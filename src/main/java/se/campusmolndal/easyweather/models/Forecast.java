@@ -0,0 +1,102 @@
+package se.campusmolndal.easyweather.models;
+
+/**
+ * Hourly and daily forecast for one location, stored column-wise in primitive arrays.
+ * Hourly points are one hour apart in UTC, so only the first timestamp is kept and the
+ * timestamp of point {@code i} is {@code start + i * 3600}. Daily points fall on local
+ * midnights, which are not always 24 hours apart when daylight saving time changes,
+ * so their timestamps are kept as a column. Times are epoch seconds. A missing value
+ * is NaN for double columns and -1 for short columns.
+ */
+public class Forecast {
+    public static final int HOURLY_STEP_SECONDS = 3600;
+
+    private final double latitude;
+    private final double longitude;
+    private final int utcOffsetSeconds;
+
+    private long hourlyStart;
+    private double[] hourlyTemperature = new double[0];
+    private double[] hourlyWindSpeed = new double[0];
+    private short[] hourlyWeatherCode = new short[0];
+    private short[] hourlyPrecipitationProbability = new short[0];
+
+    private long[] dailyTime = new long[0];
+    private double[] dailyTemperatureMax = new double[0];
+    private double[] dailyTemperatureMin = new double[0];
+    private double[] dailyPrecipitationSum = new double[0];
+    private double[] dailyWindSpeedMax = new double[0];
+    private short[] dailyWeatherCode = new short[0];
+
+    private boolean stale; // Served from the last known value while the upstream is unavailable
+    private long ageSeconds; // Age of the data when served stale
+
+    public Forecast(double latitude, double longitude, int utcOffsetSeconds) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.utcOffsetSeconds = utcOffsetSeconds;
+    }
+
+    public double getLatitude() { return latitude; }
+    public double getLongitude() { return longitude; }
+    public int getUtcOffsetSeconds() { return utcOffsetSeconds; }
+
+    public int getHourlyCount() { return hourlyTemperature.length; }
+    public long getHourlyStart() { return hourlyStart; }
+    public double[] getHourlyTemperature() { return hourlyTemperature; }
+    public double[] getHourlyWindSpeed() { return hourlyWindSpeed; }
+    public short[] getHourlyWeatherCode() { return hourlyWeatherCode; }
+    public short[] getHourlyPrecipitationProbability() { return hourlyPrecipitationProbability; }
+
+    public int getDailyCount() { return dailyTemperatureMax.length; }
+    public long[] getDailyTime() { return dailyTime; }
+    public double[] getDailyTemperatureMax() { return dailyTemperatureMax; }
+    public double[] getDailyTemperatureMin() { return dailyTemperatureMin; }
+    public double[] getDailyPrecipitationSum() { return dailyPrecipitationSum; }
+    public double[] getDailyWindSpeedMax() { return dailyWindSpeedMax; }
+    public short[] getDailyWeatherCode() { return dailyWeatherCode; }
+
+    public boolean isStale() { return stale; }
+    public long getAgeSeconds() { return ageSeconds; }
+
+    // Copy marked as last known data, so the cached instance itself is never changed.
+    // The columns are shared; they are not modified after parsing.
+    public Forecast asStale(long ageSeconds) {
+        Forecast copy = new Forecast(latitude, longitude, utcOffsetSeconds);
+        copy.hourlyStart = hourlyStart;
+        copy.hourlyTemperature = hourlyTemperature;
+        copy.hourlyWindSpeed = hourlyWindSpeed;
+        copy.hourlyWeatherCode = hourlyWeatherCode;
+        copy.hourlyPrecipitationProbability = hourlyPrecipitationProbability;
+        copy.dailyTime = dailyTime;
+        copy.dailyTemperatureMax = dailyTemperatureMax;
+        copy.dailyTemperatureMin = dailyTemperatureMin;
+        copy.dailyPrecipitationSum = dailyPrecipitationSum;
+        copy.dailyWindSpeedMax = dailyWindSpeedMax;
+        copy.dailyWeatherCode = dailyWeatherCode;
+        copy.stale = true;
+        copy.ageSeconds = ageSeconds;
+        return copy;
+    }
+
+    public long hourlyTime(int index) {
+        return hourlyStart + (long) index * HOURLY_STEP_SECONDS;
+    }
+
+    public long dailyTime(int index) {
+        return dailyTime[index];
+    }
+
+    public void setHourlyStart(long hourlyStart) { this.hourlyStart = hourlyStart; }
+    public void setHourlyTemperature(double[] hourlyTemperature) { this.hourlyTemperature = hourlyTemperature; }
+    public void setHourlyWindSpeed(double[] hourlyWindSpeed) { this.hourlyWindSpeed = hourlyWindSpeed; }
+    public void setHourlyWeatherCode(short[] hourlyWeatherCode) { this.hourlyWeatherCode = hourlyWeatherCode; }
+    public void setHourlyPrecipitationProbability(short[] hourlyPrecipitationProbability) { this.hourlyPrecipitationProbability = hourlyPrecipitationProbability; }
+
+    public void setDailyTime(long[] dailyTime) { this.dailyTime = dailyTime; }
+    public void setDailyTemperatureMax(double[] dailyTemperatureMax) { this.dailyTemperatureMax = dailyTemperatureMax; }
+    public void setDailyTemperatureMin(double[] dailyTemperatureMin) { this.dailyTemperatureMin = dailyTemperatureMin; }
+    public void setDailyPrecipitationSum(double[] dailyPrecipitationSum) { this.dailyPrecipitationSum = dailyPrecipitationSum; }
+    public void setDailyWindSpeedMax(double[] dailyWindSpeedMax) { this.dailyWindSpeedMax = dailyWindSpeedMax; }
+    public void setDailyWeatherCode(short[] dailyWeatherCode) { this.dailyWeatherCode = dailyWeatherCode; }
+}
@@ -19,6 +19,9 @@ public class WeatherInfo {
     private String description; // Beskrivningen av vädret
     private final int weatherCode;
     private WeatherIconService.WeatherIcon icon; // Weather icon data
+    private boolean stale; // Served from the last known value while the upstream is unavailable
+    private long ageSeconds; // Age of the data when served stale
+    private long observedAt; // Upstream observation time in epoch seconds, 0 when unknown
 
     public WeatherInfo(double temperature, double windSpeed, String description, int weatherCode) {
         this.temperature = temperature;
@@ -69,6 +72,32 @@ public class WeatherInfo {
     public int getWeatherCode() {
         return weatherCode;
     }
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    public long getAgeSeconds() {
+        return ageSeconds;
+    }
+
+    public long getObservedAt() {
+        return observedAt;
+    }
+
+    public void setObservedAt(long observedAt) {
+        this.observedAt = observedAt;
+    }
+
+    // Copy marked as last known data, so the cached instance itself is never changed
+    public WeatherInfo asStale(long ageSeconds) {
+        WeatherInfo copy = new WeatherInfo(temperature, windSpeed, description, weatherCode);
+        copy.setIcon(icon);
+        copy.observedAt = observedAt;
+        copy.stale = true;
+        copy.ageSeconds = ageSeconds;
+        return copy;
+    }
         //after we got weather description, we need swedish translation to show the user
     public String getSwedishDescription( )    {
         switch (description) {
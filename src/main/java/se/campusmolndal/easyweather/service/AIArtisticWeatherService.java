@@ -12,7 +12,6 @@ import java.net.URI;
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class AIArtisticWeatherService {
@@ -23,22 +22,46 @@ public class AIArtisticWeatherService {
     private final HttpClient httpClient;
     private final ObjectMapper objectMapper;
     
-    // Cache for generated images to avoid regenerating the same content
-    private final Map<String, String> imageCache = new ConcurrentHashMap<>();
-    private final Map<String, String> animationCache = new ConcurrentHashMap<>();
+    // Generated images and animations to avoid regenerating the same content. Bounded by
+    // the approximate heap size of the HTML held; entries expire before DALL-E image URLs do.
+    private static final long TYPICAL_ENTRY_BYTES = 16 * 1024;
+    private static final String IMAGE_KEY_PREFIX = "image_";
+    private static final String ANIMATION_KEY_PREFIX = "weather_";
+    private final TinyLfuCache<String, String> artCache;
+    // Second tier that survives restarts; read when the in-memory cache misses
+    private final ContentStore contentStore;
+    private final Duration cacheTtl;
+    private final Duration animationTtl;
 
-    public AIArtisticWeatherService() {
+    public AIArtisticWeatherService(ContentStore contentStore,
+                                    @Value("${ai.cache.max-bytes:33554432}") long cacheMaxBytes,
+                                    @Value("${ai.cache.ttl-minutes:50}") long cacheTtlMinutes,
+                                    @Value("${content-store.artwork-ttl-hours:168}") long artworkTtlHours) {
         this.httpClient = HttpClient.newBuilder()
                 .connectTimeout(Duration.ofSeconds(30))
                 .build();
         this.objectMapper = new ObjectMapper();
+        int expectedEntries = (int) Math.min(1 << 20, cacheMaxBytes / TYPICAL_ENTRY_BYTES);
+        this.artCache = new TinyLfuCache<>(cacheMaxBytes, expectedEntries, Duration.ofMinutes(cacheTtlMinutes),
+                AIArtisticWeatherService::weigh);
+        this.contentStore = contentStore;
+        // Image pages link to DALL-E URLs and are stored on disk only as long as in memory;
+        // animations have no such limit
+        this.cacheTtl = Duration.ofMinutes(cacheTtlMinutes);
+        this.animationTtl = Duration.ofHours(artworkTtlHours);
+    }
+
+    // Strings hold up to two bytes per char, plus object headers
+    private static long weigh(String html) {
+        return 64 + 2L * html.length();
     }
 
     public String generateArtisticCityImage(String city, WeatherInfo weatherInfo) {
-        String cacheKey = city.toLowerCase() + "_" + weatherInfo.getWeatherCode();
+        String cacheKey = IMAGE_KEY_PREFIX + CityNameNormalizer.normalize(city) + "_" + weatherInfo.getWeatherCode();
         
-        if (imageCache.containsKey(cacheKey)) {
-            return imageCache.get(cacheKey);
+        String cached = cachedArt(cacheKey);
+        if (cached != null) {
+            return cached;
         }
 
         if (openaiApiKey == null || openaiApiKey.isEmpty()) {
@@ -51,7 +74,8 @@ public class AIArtisticWeatherService {
             
             if (imageUrl != null) {
                 String htmlResult = createArtisticImageHTML(city, imageUrl, weatherInfo);
-                imageCache.put(cacheKey, htmlResult);
+                artCache.put(cacheKey, htmlResult);
+                contentStore.put(cacheKey, htmlResult, cacheTtl);
                 return htmlResult;
             }
             
@@ -60,15 +84,16 @@ public class AIArtisticWeatherService {
         }
         
         String fallback = generateFallbackCityArt(city, weatherInfo);
-        imageCache.put(cacheKey, fallback);
+        artCache.put(cacheKey, fallback);
         return fallback;
     }
 
     public String generateArtisticWeatherAnimation(String city, WeatherInfo weatherInfo) {
-        String cacheKey = "weather_" + weatherInfo.getWeatherCode() + "_" + city.toLowerCase();
+        String cacheKey = ANIMATION_KEY_PREFIX + weatherInfo.getWeatherCode() + "_" + CityNameNormalizer.normalize(city);
         
-        if (animationCache.containsKey(cacheKey)) {
-            return animationCache.get(cacheKey);
+        String cached = cachedArt(cacheKey);
+        if (cached != null) {
+            return cached;
         }
 
         if (openaiApiKey == null || openaiApiKey.isEmpty()) {
@@ -80,7 +105,8 @@ public class AIArtisticWeatherService {
             String animationDescription = callOpenAI(prompt);
             
             String htmlResult = createAnimatedWeatherHTML(city, animationDescription, weatherInfo);
-            animationCache.put(cacheKey, htmlResult);
+            artCache.put(cacheKey, htmlResult);
+            contentStore.put(cacheKey, htmlResult, animationTtl);
             return htmlResult;
             
         } catch (Exception e) {
@@ -88,10 +114,28 @@ public class AIArtisticWeatherService {
         }
         
         String fallback = generateFallbackWeatherAnimation(weatherInfo);
-        animationCache.put(cacheKey, fallback);
+        artCache.put(cacheKey, fallback);
         return fallback;
     }
 
+    // Memory first, then disk; a value found on disk is promoted into memory for no
+    // longer than it has left on disk
+    private String cachedArt(String cacheKey) {
+        String cached = artCache.get(cacheKey);
+        if (cached == null) {
+            cached = contentStore.get(cacheKey);
+            if (cached != null) {
+                Duration remaining = contentStore.timeToExpiry(cacheKey);
+                if (remaining == null || remaining.compareTo(cacheTtl) >= 0) {
+                    artCache.put(cacheKey, cached);
+                } else if (!remaining.isZero()) {
+                    artCache.put(cacheKey, cached, remaining);
+                }
+            }
+        }
+        return cached;
+    }
+
     private String createCityImagePrompt(String city, WeatherInfo weatherInfo) {
         return String.format("""
             Create a detailed prompt for DALL-E to generate a handdrawn, artistic illustration of %s with current weather conditions.
@@ -403,12 +447,21 @@ public class AIArtisticWeatherService {
         };
     }
 
+    /**
+     * Drops generated artwork from memory and from the content store; landmark SVGs
+     * kept there by other services stay.
+     */
     public void clearCache() {
-        imageCache.clear();
-        animationCache.clear();
+        artCache.clear();
+        contentStore.removeByPrefix(IMAGE_KEY_PREFIX);
+        contentStore.removeByPrefix(ANIMATION_KEY_PREFIX);
+    }
+
+    public TinyLfuCache.Stats getCacheStats() {
+        return artCache.getStats();
     }
 
-    public int getCacheSize() {
-        return imageCache.size() + animationCache.size();
+    public Map<String, Object> getContentStoreStats() {
+        return contentStore.getStats();
     }
 }
\ No newline at end of file
@@ -17,14 +17,20 @@ public class AIWeatherService {
     @Value("${openai.api.key:}")
     private String openaiApiKey;
 
+    // Landmark SVGs depend only on the city, so generated ones are kept on disk across restarts
+    @Value("${content-store.landmark-ttl-days:0}")
+    private long landmarkTtlDays;
+
     private final HttpClient httpClient;
     private final ObjectMapper objectMapper;
+    private final ContentStore contentStore;
 
-    public AIWeatherService() {
+    public AIWeatherService(ContentStore contentStore) {
         this.httpClient = HttpClient.newBuilder()
                 .connectTimeout(Duration.ofSeconds(30))
                 .build();
         this.objectMapper = new ObjectMapper();
+        this.contentStore = contentStore;
     }
 
     public String generateWeatherPrompt(String city, WeatherInfo weatherInfo) {
@@ -148,6 +154,12 @@ public class AIWeatherService {
     }
     
     public String generateAILandmarkSVG(String city, WeatherInfo weatherInfo, GeocodingService.LocationInfo locationInfo) {
+        String storeKey = "landmark-svg:" + CityNameNormalizer.normalize(city);
+        String stored = contentStore.get(storeKey);
+        if (stored != null) {
+            return stored;
+        }
+
         if (openaiApiKey == null || openaiApiKey.isEmpty()) {
             return generateFallbackLandmarkSVG(city, weatherInfo);
         }
@@ -158,7 +170,11 @@ public class AIWeatherService {
 
             // Extract SVG from AI response (it might include extra text)
             String svgCode = extractSVGFromResponse(aiResponse);
-            return svgCode != null ? svgCode : generateFallbackLandmarkSVG(city, weatherInfo);
+            if (svgCode == null) {
+                return generateFallbackLandmarkSVG(city, weatherInfo);
+            }
+            contentStore.put(storeKey, svgCode, Duration.ofDays(landmarkTtlDays));
+            return svgCode;
 
         } catch (Exception e) {
             return generateFallbackLandmarkSVG(city, weatherInfo);
@@ -1,5 +1,6 @@
 package se.campusmolndal.easyweather.service;
 
+import se.campusmolndal.easyweather.models.Aliases;
 import se.campusmolndal.easyweather.models.City;
 import se.campusmolndal.easyweather.database.DatabaseHandler;
 
@@ -7,33 +8,65 @@ import javax.sql.DataSource;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 
 public class CityManager {
     private static Map<String, City> cities = new HashMap<>();
 
+    private static final List<City> BUILT_IN_CITIES = List.of(
+            new City("Stockholm", 59.3293, 18.0686),
+            new City("Göteborg", 57.7089, 11.9746),
+            new City("Malmö", 55.6044, 13.0038),
+            new City("Kiruna", 67.8557, 20.2255),
+            new City("Växjö", 56.8777, 14.8094),
+            new City("Mölndal", 57.6584, 12.0022));
+
+    private static final List<Aliases> ALIASES = List.of(
+            new Aliases("Stockholm", new String[] {"Storstan"}),
+            new Aliases("Göteborg", new String[] {"Götet"}),
+            new Aliases("Malmö", new String[] {"Möllan"}),
+            new Aliases("Kiruna", new String[] {"Kiran"}),
+            new Aliases("Växjö", new String[] {"Växjöv"}),
+            new Aliases("Mölndal", new String[] {"Mölndalv"}));
+
+    // The built-in cities are shared, so their aliases are attached once here rather
+    // than again by every new CityManager
+    static {
+        for (City city : BUILT_IN_CITIES) {
+            cities.put(city.getName(), city);
+        }
+        for (Aliases alias : ALIASES) {
+            for (String name : alias.getAliases()) {
+                cities.get(alias.getName()).addAlias(name);
+            }
+        }
+    }
+
     public CityManager() {
-        cities.put("Stockholm", new City("Stockholm", 59.3293, 18.0686));
-        cities.put("Göteborg", new City("Göteborg", 57.7089, 11.9746));
-        cities.put("Malmö", new City("Malmö", 55.6044, 13.0038));
-        cities.put("Kiruna", new City("Kiruna", 67.8557, 20.2255));
-        cities.put("Växjö", new City("Växjö", 56.8777, 14.8094));
-        cities.put("Mölndal", new City("Mölndal", 57.6584, 12.0022));
-        addCityAlias("Göteborg", "Götet");
-        addCityAlias("Malmö", "Möllan");
-        addCityAlias("Kiruna", "Kiran");
-        addCityAlias("Växjö", "Växjöv");
-        addCityAlias("Mölndal", "Mölndalv");
+    }
+
+    public static List<City> getBuiltInCities() {
+        return BUILT_IN_CITIES;
+    }
+
+    /**
+     * Nicknames for the built-in cities, e.g. "Götet" for Göteborg.
+     */
+    public static List<Aliases> getAliases() {
+        return ALIASES;
     }
 
     public static City getCity(String cityName) {
         if (cities.containsKey(cityName)) {
             return cities.get(cityName);
         } else {
-            for (Map.Entry<String, City> entry : cities.entrySet()) {
-                if (entry.getValue().getAliases().contains(cityName)) {
-                    return entry.getValue();
+            for (Aliases aliases : ALIASES) {
+                for (String alias : aliases.getAliases()) {
+                    if (alias.equals(cityName)) {
+                        return cities.get(aliases.getName());
+                    }
                 }
             }
         }
@@ -0,0 +1,25 @@
+package se.campusmolndal.easyweather.service;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Canonical form of a city name used as lookup key: diacritics stripped, lower case,
+ * surrounding whitespace trimmed and inner runs of whitespace collapsed, so
+ * "Göteborg", "goteborg" and " GÖTEBORG " all map to "goteborg".
+ */
+public final class CityNameNormalizer {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private CityNameNormalizer() {
+    }
+
+    public static String normalize(String cityName) {
+        String decomposed = Normalizer.normalize(cityName, Normalizer.Form.NFKD);
+        String stripped = COMBINING_MARKS.matcher(decomposed).replaceAll("");
+        return WHITESPACE.matcher(stripped.toLowerCase(Locale.ROOT).trim()).replaceAll(" ");
+    }
+}
@@ -15,14 +15,15 @@ public class CityService {
     }
 
     public City getCityFromDatabase(String cityName) {
-        String sql = "SELECT name, latitude, longitude FROM cities WHERE name = ?";
+        String sql = "SELECT cityName, latitude, longitude FROM aliweather WHERE cityKey = ?";
         try {
-            return jdbcTemplate.queryForObject(sql, new Object[]{cityName}, (rs, rowNum) ->
+            return jdbcTemplate.queryForObject(sql, (rs, rowNum) ->
                     new City(
-                            rs.getString("name"),
+                            rs.getString("cityName"),
                             rs.getDouble("latitude"),
                             rs.getDouble("longitude")
-                    )
+                    ),
+                    CityNameNormalizer.normalize(cityName)
             );
         } catch (Exception e) {
             return null;
@@ -0,0 +1,99 @@
+package se.campusmolndal.easyweather.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Service;
+import se.campusmolndal.easyweather.database.CityIndex;
+import se.campusmolndal.easyweather.models.Aliases;
+import se.campusmolndal.easyweather.models.City;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * City name autocomplete. Stored cities, the built-in cities and their aliases are
+ * loaded into a {@link CityTrie} at startup, and cities saved later are added as they
+ * arrive. Suggestions are ranked exact match first, then by current popularity
+ * according to {@link HotCityTracker}, then shortest name.
+ */
+@Service
+public class CitySuggestionService {
+
+    // Candidates collected from the trie per requested suggestion before ranking
+    private static final int CANDIDATES_PER_RESULT = 4;
+    private static final int MIN_CANDIDATES = 32;
+
+    private final CityIndex cityIndex;
+    private final HotCityTracker hotCityTracker;
+    private final CityTrie trie = new CityTrie();
+
+    public CitySuggestionService(CityIndex cityIndex, HotCityTracker hotCityTracker) {
+        this.cityIndex = cityIndex;
+        this.hotCityTracker = hotCityTracker;
+    }
+
+    @PostConstruct
+    public void build() {
+        cityIndex.addListener(this::addCity);
+        for (City city : CityManager.getBuiltInCities()) {
+            addCity(city);
+        }
+        for (City city : cityIndex.getAll()) {
+            addCity(city);
+        }
+        for (Aliases aliases : CityManager.getAliases()) {
+            City city = findBuiltInCity(aliases.getName());
+            if (city == null) {
+                continue;
+            }
+            for (String alias : aliases.getAliases()) {
+                trie.insert(alias, city.getName(), alias, city.getLatitude(), city.getLongitude());
+            }
+        }
+        System.out.println("City suggestions ready with " + trie.size() + " names and aliases");
+    }
+
+    public void addCity(City city) {
+        trie.insert(city.getName(), city.getName(), null, city.getLatitude(), city.getLongitude());
+    }
+
+    public List<CityTrie.Entry> suggest(String query, int limit) {
+        String key = CityNameNormalizer.normalize(query);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        List<CityTrie.Entry> candidates = trie.search(key, Math.max(MIN_CANDIDATES, limit * CANDIDATES_PER_RESULT));
+
+        // A city reached through both its name and an alias is listed once
+        Set<String> seen = new HashSet<>();
+        List<CityTrie.Entry> unique = new ArrayList<>(candidates.size());
+        for (CityTrie.Entry entry : candidates) {
+            if (seen.add(CityNameNormalizer.normalize(entry.getName()))) {
+                unique.add(entry);
+            }
+        }
+        // Scores keep decaying while we sort, so they are read once up front
+        Map<CityTrie.Entry, Double> scores = new IdentityHashMap<>(unique.size());
+        for (CityTrie.Entry entry : unique) {
+            scores.put(entry, hotCityTracker.score(entry.getName()));
+        }
+        unique.sort(Comparator.<CityTrie.Entry>comparingInt(entry -> entry.getTerm().equals(key) ? 0 : 1)
+                .thenComparing(Comparator.comparingDouble((CityTrie.Entry entry) -> scores.get(entry)).reversed())
+                .thenComparingInt(entry -> entry.getName().length())
+                .thenComparing(CityTrie.Entry::getName));
+        return unique.size() > limit ? unique.subList(0, limit) : unique;
+    }
+
+    private static City findBuiltInCity(String name) {
+        for (City city : CityManager.getBuiltInCities()) {
+            if (city.getName().equals(name)) {
+                return city;
+            }
+        }
+        return null;
+    }
+}
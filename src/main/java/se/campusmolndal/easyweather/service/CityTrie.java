@@ -0,0 +1,152 @@
+package se.campusmolndal.easyweather.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Prefix trie over normalised city names and aliases (see {@link CityNameNormalizer}).
+ * Children are kept in sorted parallel arrays rather than maps, which keeps each node
+ * to a few small arrays. Inserts can happen at any time; lookups take a shared lock
+ * and never block each other.
+ */
+public class CityTrie {
+
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+
+    private final Node root = new Node();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private int size;
+
+    /**
+     * Adds a city under {@code term}, its own name or one of its aliases. Adding the
+     * same city under the same term again has no effect.
+     */
+    public void insert(String term, String cityName, String alias, double latitude, double longitude) {
+        String key = CityNameNormalizer.normalize(term);
+        if (key.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < key.length(); i++) {
+                node = node.childOrCreate(key.charAt(i));
+            }
+            for (Entry entry : node.entries) {
+                if (entry.name.equals(cityName)) {
+                    return;
+                }
+            }
+            Entry[] entries = Arrays.copyOf(node.entries, node.entries.length + 1);
+            entries[entries.length - 1] = new Entry(key, cityName, alias, latitude, longitude);
+            node.entries = entries;
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to {@code maxResults} entries whose term starts with {@code prefix}.
+     * Nodes are visited breadth first, so shorter completions come before longer ones.
+     */
+    public List<Entry> search(String prefix, int maxResults) {
+        String key = CityNameNormalizer.normalize(prefix);
+        List<Entry> results = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.child(key.charAt(i));
+            }
+            if (node == null) {
+                return results;
+            }
+            ArrayDeque<Node> queue = new ArrayDeque<>();
+            queue.add(node);
+            while (!queue.isEmpty() && results.size() < maxResults) {
+                Node current = queue.poll();
+                for (Entry entry : current.entries) {
+                    if (results.size() >= maxResults) {
+                        break;
+                    }
+                    results.add(entry);
+                }
+                queue.addAll(Arrays.asList(current.children));
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static final class Node {
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private Entry[] entries = NO_ENTRIES;
+
+        Node child(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node childOrCreate(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertAt = -index - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+            Node child = new Node();
+            newKeys[insertAt] = c;
+            newChildren[insertAt] = child;
+            keys = newKeys;
+            children = newChildren;
+            return child;
+        }
+    }
+
+    public static final class Entry {
+        private final String term;
+        private final String name;
+        private final String alias;
+        private final double latitude;
+        private final double longitude;
+
+        Entry(String term, String name, String alias, double latitude, double longitude) {
+            this.term = term;
+            this.name = name;
+            this.alias = alias;
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+
+        /** The normalised name or alias this entry was found under. */
+        public String getTerm() { return term; }
+        public String getName() { return name; }
+        /** The alias that matched, or null when the city's own name matched. */
+        public String getAlias() { return alias; }
+        public double getLatitude() { return latitude; }
+        public double getLongitude() { return longitude; }
+    }
+}
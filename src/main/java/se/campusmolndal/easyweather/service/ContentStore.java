@@ -0,0 +1,489 @@
+package se.campusmolndal.easyweather.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent key/value store on local disk for generated content (AI landmark SVGs
+ * and artwork), so it survives restarts and deploys instead of being paid for again.
+ *
+ * Values are appended to segment files under {@code content-store.path}; a new segment
+ * is started once the current one reaches {@code content-store.segment-bytes}. Only the
+ * location of each live value is kept in memory, rebuilt at startup by scanning the
+ * segments; values are read lazily from memory-mapped segments when requested.
+ * Overwritten, removed and expired values are garbage until compaction copies the live
+ * values into fresh segments, which happens once garbage makes up more than
+ * {@code content-store.compact-garbage-ratio} of the data.
+ *
+ * Record layout: int record length, long expiry (epoch millis, 0 = never), int key
+ * length, int value length (-1 for a removal), key and value in UTF-8, int CRC32 of
+ * everything after the record length. A record torn by a crash fails its checksum and
+ * is cut off on the next startup.
+ */
+@Component
+public class ContentStore {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_BYTES = 4 + 8 + 4 + 4;
+    private static final int CRC_BYTES = 4;
+
+    @Value("${content-store.enabled:true}")
+    private boolean enabled;
+
+    @Value("${content-store.path:data/content-store}")
+    private String path;
+
+    @Value("${content-store.segment-bytes:67108864}")
+    private long segmentBytes;
+
+    @Value("${content-store.compact-garbage-ratio:0.5}")
+    private double compactGarbageRatio;
+
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+    // Guards appends and compaction; reads only go through the index and mapped segments
+    private final Object writeLock = new Object();
+    private Path directory;
+    private Segment active;
+    private volatile boolean open;
+
+    private final AtomicLong liveBytes = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+
+    @PostConstruct
+    public void open() {
+        if (!enabled) {
+            return;
+        }
+        if (segmentBytes > Integer.MAX_VALUE) {
+            // Segments are mapped and addressed with int offsets
+            System.err.println("content-store.segment-bytes " + segmentBytes + " is above the limit, using " + Integer.MAX_VALUE);
+            segmentBytes = Integer.MAX_VALUE;
+        }
+        try {
+            directory = Path.of(path);
+            Files.createDirectories(directory);
+            synchronized (writeLock) {
+                load();
+                open = true;
+                compactIfNeeded();
+            }
+            System.out.println("Content store opened with " + index.size() + " entries in " + segments.size()
+                    + " segments at " + directory);
+        } catch (IOException e) {
+            System.err.println("Content store unavailable, generated content will not persist: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the stored value, or null when it is missing, expired or the store is
+     * unavailable.
+     */
+    public String get(String key) {
+        if (!open) {
+            return null;
+        }
+        // A second attempt covers a compaction that moved the value after it was looked up
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Location location = index.get(key);
+            if (location == null || location.isExpired(System.currentTimeMillis())) {
+                break;
+            }
+            Segment segment = segments.get(location.segmentId);
+            if (segment == null) {
+                continue;
+            }
+            try {
+                String value = segment.readValue(location);
+                hits.incrementAndGet();
+                return value;
+            } catch (IOException e) {
+                System.err.println("Could not read " + key + " from the content store: " + e.getMessage());
+                break;
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Time left before the stored value expires, or null when it is not stored or
+     * never expires.
+     */
+    public Duration timeToExpiry(String key) {
+        Location location = open ? index.get(key) : null;
+        if (location == null) {
+            return null;
+        }
+        return location.expiresAt == 0 ? null : Duration.ofMillis(Math.max(0, location.expiresAt - System.currentTimeMillis()));
+    }
+
+    /**
+     * Stores a value. A null or zero time to live keeps it until overwritten. Writes
+     * survive a restart of the process but are not fsynced one by one, so the last few
+     * may be lost if the host itself goes down.
+     */
+    public void put(String key, String value, Duration timeToLive) {
+        if (!open) {
+            return;
+        }
+        long expiresAt = timeToLive == null || timeToLive.isZero() ? 0 : System.currentTimeMillis() + timeToLive.toMillis();
+        append(key, value, expiresAt);
+    }
+
+    public void remove(String key) {
+        if (open && index.containsKey(key)) {
+            append(key, null, 0);
+        }
+    }
+
+    /**
+     * Removes every entry whose key starts with {@code prefix}, so one user of the
+     * store can drop its own entries without touching the others'. Returns the number
+     * of entries removed.
+     */
+    public int removeByPrefix(String prefix) {
+        if (!open) {
+            return 0;
+        }
+        int removed = 0;
+        for (String key : new ArrayList<>(index.keySet())) {
+            if (key.startsWith(prefix) && index.containsKey(key)) {
+                append(key, null, 0);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", open);
+        stats.put("entries", index.size());
+        stats.put("segments", segments.size());
+        stats.put("liveBytes", liveBytes.get());
+        stats.put("totalBytes", totalBytes());
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("writes", writes.get());
+        stats.put("compactions", compactions.get());
+        return stats;
+    }
+
+    @Scheduled(fixedDelayString = "${content-store.compact-check-interval-ms:3600000}", initialDelayString = "${content-store.compact-check-interval-ms:3600000}")
+    public void compactIfNeeded() {
+        if (!open) {
+            return;
+        }
+        synchronized (writeLock) {
+            dropExpired();
+            long total = totalBytes();
+            if (total > 0 && 1.0 - (double) liveBytes.get() / total > compactGarbageRatio) {
+                try {
+                    compact();
+                } catch (IOException e) {
+                    System.err.println("Content store compaction failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void append(String key, String value, long expiresAt) {
+        byte[] record = encode(key, value, expiresAt);
+        synchronized (writeLock) {
+            try {
+                if (active.size + record.length > segmentBytes && active.size > 0) {
+                    active = createSegment(segments.lastKey() + 1);
+                }
+                long offset = active.append(record);
+                Location previous = value == null
+                        ? index.remove(key)
+                        : index.put(key, new Location(active.id, offset, record.length, expiresAt));
+                if (value != null) {
+                    liveBytes.addAndGet(record.length);
+                }
+                if (previous != null) {
+                    liveBytes.addAndGet(-previous.length);
+                }
+                writes.incrementAndGet();
+            } catch (IOException e) {
+                System.err.println("Could not write " + key + " to the content store: " + e.getMessage());
+            }
+        }
+    }
+
+    private void load() throws IOException {
+        List<Integer> ids = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    ids.add(Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    System.err.println("Content store: ignoring unexpected file " + file);
+                }
+            }
+        }
+        ids.sort(null);
+        for (int i = 0; i < ids.size(); i++) {
+            Segment segment = Segment.open(segmentFile(ids.get(i)), ids.get(i));
+            segments.put(segment.id, segment);
+            scan(segment, i == ids.size() - 1);
+        }
+        long now = System.currentTimeMillis();
+        index.values().removeIf(location -> location.isExpired(now));
+        liveBytes.set(index.values().stream().mapToLong(location -> location.length).sum());
+        active = segments.isEmpty() ? createSegment(1) : segments.lastEntry().getValue();
+    }
+
+    // Replays one segment into the index; later records for a key replace earlier ones
+    private void scan(Segment segment, boolean last) throws IOException {
+        ByteBuffer buffer = segment.map();
+        long offset = 0;
+        while (offset + HEADER_BYTES + CRC_BYTES <= segment.size) {
+            int length = buffer.getInt((int) offset);
+            if (length < HEADER_BYTES + CRC_BYTES || offset + length > segment.size || !checksumMatches(buffer, (int) offset, length)) {
+                break;
+            }
+            long expiresAt = buffer.getLong((int) offset + 4);
+            int keyLength = buffer.getInt((int) offset + 12);
+            int valueLength = buffer.getInt((int) offset + 16);
+            String key = utf8(buffer, (int) offset + HEADER_BYTES, keyLength);
+            if (valueLength < 0) {
+                index.remove(key);
+            } else {
+                index.put(key, new Location(segment.id, offset, length, expiresAt));
+            }
+            offset += length;
+        }
+        if (offset < segment.size) {
+            if (last) {
+                System.err.println("Content store: truncating incomplete record at " + offset + " in " + segment.file);
+                segment.truncate(offset);
+            } else {
+                System.err.println("Content store: skipping corrupt data after " + offset + " in " + segment.file);
+            }
+        }
+    }
+
+    private void compact() throws IOException {
+        int firstId = segments.lastKey() + 1;
+        List<Segment> old = new ArrayList<>(segments.values());
+        List<Segment> created = new ArrayList<>();
+        Map<String, Location> moved = new LinkedHashMap<>();
+        try {
+            Segment target = createSegment(firstId);
+            created.add(target);
+            for (Map.Entry<String, Location> entry : index.entrySet()) {
+                Location location = entry.getValue();
+                byte[] record = segments.get(location.segmentId).readRecord(location);
+                if (target.size + record.length > segmentBytes && target.size > 0) {
+                    target = createSegment(target.id + 1);
+                    created.add(target);
+                }
+                moved.put(entry.getKey(), new Location(target.id, target.append(record), record.length, location.expiresAt));
+            }
+        } catch (IOException e) {
+            // Leaving partial copies behind would replay stale values over newer ones on restart
+            for (Segment segment : created) {
+                segments.remove(segment.id);
+                segment.close();
+                Files.deleteIfExists(segment.file);
+            }
+            throw e;
+        }
+        // Writes are blocked by the write lock, so nothing changed the index meanwhile
+        index.putAll(moved);
+        active = created.get(created.size() - 1);
+        for (Segment segment : old) {
+            segments.remove(segment.id);
+            segment.close();
+            Files.deleteIfExists(segment.file);
+        }
+        compactions.incrementAndGet();
+        System.out.println("Content store compacted into " + segments.size() + " segments, " + index.size() + " entries");
+    }
+
+    private void dropExpired() {
+        long now = System.currentTimeMillis();
+        index.entrySet().removeIf(entry -> {
+            if (entry.getValue().isExpired(now)) {
+                liveBytes.addAndGet(-entry.getValue().length);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private long totalBytes() {
+        return segments.values().stream().mapToLong(segment -> segment.size).sum();
+    }
+
+    private Segment createSegment(int id) throws IOException {
+        Segment segment = Segment.open(segmentFile(id), id);
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private Path segmentFile(int id) {
+        return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+    }
+
+    private static byte[] encode(String key, String value, long expiresAt) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] valueBytes = value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        int length = HEADER_BYTES + keyBytes.length + valueBytes.length + CRC_BYTES;
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.putInt(length).putLong(expiresAt).putInt(keyBytes.length).putInt(value != null ? valueBytes.length : -1);
+        buffer.put(keyBytes).put(valueBytes);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 4, length - 4 - CRC_BYTES);
+        buffer.putInt((int) crc.getValue());
+        return buffer.array();
+    }
+
+    private static boolean checksumMatches(ByteBuffer buffer, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset + 4, length - 4 - CRC_BYTES));
+        return (int) crc.getValue() == buffer.getInt(offset + length - CRC_BYTES);
+    }
+
+    private static String utf8(ByteBuffer buffer, int offset, int length) {
+        return StandardCharsets.UTF_8.decode(buffer.slice(offset, length)).toString();
+    }
+
+    @PreDestroy
+    public void close() {
+        synchronized (writeLock) {
+            open = false;
+            for (Segment segment : segments.values()) {
+                segment.close();
+            }
+        }
+    }
+
+    private static final class Location {
+        private final int segmentId;
+        private final long offset;
+        private final int length;
+        private final long expiresAt;
+
+        private Location(int segmentId, long offset, int length, long expiresAt) {
+            this.segmentId = segmentId;
+            this.offset = offset;
+            this.length = length;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return expiresAt != 0 && expiresAt <= now;
+        }
+    }
+
+    /**
+     * One segment file: appended through a channel, read through a read-only mapping
+     * that is extended when a read reaches past it.
+     */
+    private static final class Segment {
+        private final Path file;
+        private final int id;
+        private final FileChannel channel;
+        private volatile long size;
+        private volatile MappedByteBuffer mapped;
+
+        private Segment(Path file, int id, FileChannel channel) throws IOException {
+            this.file = file;
+            this.id = id;
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        static Segment open(Path file, int id) throws IOException {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(file, id, channel);
+        }
+
+        long append(byte[] record) throws IOException {
+            long offset = size;
+            ByteBuffer buffer = ByteBuffer.wrap(record);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, offset + buffer.position());
+            }
+            size = offset + record.length;
+            return offset;
+        }
+
+        String readValue(Location location) throws IOException {
+            ByteBuffer buffer = map(location.offset + location.length);
+            int start = (int) location.offset;
+            int keyLength = buffer.getInt(start + 12);
+            int valueLength = buffer.getInt(start + 16);
+            return utf8(buffer, start + HEADER_BYTES + keyLength, valueLength);
+        }
+
+        byte[] readRecord(Location location) throws IOException {
+            byte[] record = new byte[location.length];
+            map(location.offset + location.length).get((int) location.offset, record);
+            return record;
+        }
+
+        MappedByteBuffer map() throws IOException {
+            return map(size);
+        }
+
+        // Records are only ever appended, so a mapping stays valid for everything it covers
+        private MappedByteBuffer map(long upTo) throws IOException {
+            MappedByteBuffer current = mapped;
+            if (current == null || current.capacity() < upTo) {
+                synchronized (this) {
+                    current = mapped;
+                    if (current == null || current.capacity() < upTo) {
+                        current = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                        mapped = current;
+                    }
+                }
+            }
+            return current;
+        }
+
+        void truncate(long length) throws IOException {
+            channel.truncate(length);
+            size = length;
+            mapped = null;
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Could not close " + file + ": " + e.getMessage());
+            }
+        }
+    }
+}
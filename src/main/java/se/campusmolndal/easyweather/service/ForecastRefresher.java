@@ -0,0 +1,92 @@
+package se.campusmolndal.easyweather.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import se.campusmolndal.easyweather.controllers.WeatherAPIClient;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Refresh-ahead for popular cities. On every tick the hottest cities according to
+ * {@link HotCityTracker} are checked, and any whose cached forecast is about to expire
+ * is re-fetched in the background, so user requests for them keep hitting the cache.
+ * Refreshes run on a small fixed pool with a random start delay to spread upstream load.
+ */
+@Component
+public class ForecastRefresher {
+
+    private static final Logger log = LoggerFactory.getLogger(ForecastRefresher.class);
+
+    private final WeatherAPIClient weatherAPIClient;
+    private final HotCityTracker hotCityTracker;
+    private final ScheduledThreadPoolExecutor executor;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    @Value("${weather.refresh.enabled:true}")
+    private boolean enabled;
+
+    @Value("${weather.refresh.top-cities:50}")
+    private int topCities;
+
+    @Value("${weather.refresh.ahead-seconds:120}")
+    private long aheadSeconds;
+
+    @Value("${weather.refresh.jitter-ms:5000}")
+    private long jitterMillis;
+
+    public ForecastRefresher(WeatherAPIClient weatherAPIClient, HotCityTracker hotCityTracker,
+                             @Value("${weather.refresh.parallelism:4}") int parallelism) {
+        this.weatherAPIClient = weatherAPIClient;
+        this.hotCityTracker = hotCityTracker;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "forecast-refresh-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.setRemoveOnCancelPolicy(true);
+    }
+
+    @Scheduled(fixedDelayString = "${weather.refresh.interval-ms:60000}", initialDelayString = "${weather.refresh.interval-ms:60000}")
+    public void refreshHotCities() {
+        if (!enabled) {
+            return;
+        }
+        Duration window = Duration.ofSeconds(aheadSeconds);
+        for (String city : hotCityTracker.topCities(topCities)) {
+            String key = CityNameNormalizer.normalize(city);
+            if (!pending.add(key)) {
+                continue; // previous refresh for this city has not run yet
+            }
+            long delay = jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis) : 0;
+            executor.schedule(() -> refresh(key, city, window), delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void refresh(String key, String city, Duration window) {
+        try {
+            if (weatherAPIClient.refreshIfExpiring(city, window).join()) {
+                log.debug("Refreshed forecast ahead of expiry for {}", city);
+            }
+        } catch (Exception e) {
+            log.warn("Refresh-ahead failed for {}: {}", city, e.getMessage());
+        } finally {
+            pending.remove(key);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
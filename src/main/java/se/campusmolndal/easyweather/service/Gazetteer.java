@@ -0,0 +1,189 @@
+package se.campusmolndal.easyweather.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Optional offline geocoder over a GeoNames extract, consulted before OpenCage.
+ * The data lives in a memory-mapped file written by {@link GazetteerImporter}, so
+ * hundreds of thousands of names cost no heap beyond a few fields; lookups are a
+ * binary search over the sorted name keys directly in the mapped pages.
+ *
+ * Enable with {@code gazetteer.enabled=true}. When {@code gazetteer.source} points at
+ * a GeoNames cities file and the binary file at {@code gazetteer.path} is missing or
+ * older, it is (re)built at startup. A missing source is not an error as long as the
+ * binary file was built before.
+ */
+@Component
+public class Gazetteer {
+
+    private static final int HEADER_BYTES = 12;
+
+    @Value("${gazetteer.enabled:false}")
+    private boolean enabled;
+
+    @Value("${gazetteer.path:data/gazetteer.bin}")
+    private String path;
+
+    @Value("${gazetteer.source:}")
+    private String source;
+
+    private volatile MappedByteBuffer data;
+    private int count;
+    private int keyOffsetsAt;
+    private int nameOffsetsAt;
+    private int latitudesAt;
+    private int longitudesAt;
+    private int populationsAt;
+    private int countriesAt;
+    private int keysAt;
+    private int namesAt;
+
+    @PostConstruct
+    public void open() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Path file = Path.of(path);
+            if (!source.isEmpty()) {
+                Path sourceFile = Path.of(source);
+                if (!Files.exists(sourceFile)) {
+                    // The source may be removed once imported; the built file is still usable
+                    System.err.println("Gazetteer source " + sourceFile + " not found, using " + file + " as is");
+                } else if (!Files.exists(file) || Files.getLastModifiedTime(file).compareTo(Files.getLastModifiedTime(sourceFile)) < 0) {
+                    System.out.println("Importing gazetteer from " + sourceFile);
+                    GazetteerImporter.importGeoNames(sourceFile, file);
+                }
+            }
+            map(file);
+            System.out.println("Gazetteer opened with " + count + " place names from " + file);
+        } catch (IOException | IllegalStateException e) {
+            System.err.println("Gazetteer unavailable, falling back to online geocoding: " + e.getMessage());
+        }
+    }
+
+    private void map(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt(0) != GazetteerImporter.MAGIC || buffer.getInt(4) != GazetteerImporter.VERSION) {
+            throw new IllegalStateException(file + " is not a gazetteer file of version " + GazetteerImporter.VERSION);
+        }
+        count = buffer.getInt(8);
+        keyOffsetsAt = HEADER_BYTES;
+        nameOffsetsAt = keyOffsetsAt + 4 * (count + 1);
+        latitudesAt = nameOffsetsAt + 4 * (count + 1);
+        longitudesAt = latitudesAt + 4 * count;
+        populationsAt = longitudesAt + 4 * count;
+        countriesAt = populationsAt + 4 * count;
+        keysAt = countriesAt + 2 * count;
+        namesAt = keysAt + buffer.getInt(keyOffsetsAt + 4 * count);
+        data = buffer;
+    }
+
+    public boolean isAvailable() {
+        return data != null;
+    }
+
+    public int size() {
+        return data != null ? count : 0;
+    }
+
+    /**
+     * Returns the most populous place known under this name, or null when the name
+     * is unknown or the gazetteer is not enabled.
+     */
+    public Place lookup(String cityName) {
+        MappedByteBuffer buffer = data;
+        if (buffer == null) {
+            return null;
+        }
+        byte[] key = CityNameNormalizer.normalize(cityName).getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareKey(buffer, mid, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return place(buffer, mid);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the place at a position in key order, for bulk consumers iterating
+     * {@code 0 .. size() - 1}. Places indexed under several names appear once per name.
+     */
+    public Place get(int index) {
+        MappedByteBuffer buffer = data;
+        if (buffer == null || index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return place(buffer, index);
+    }
+
+    // Unsigned byte comparison of the stored key at index with the query key
+    private int compareKey(MappedByteBuffer buffer, int index, byte[] key) {
+        int start = keysAt + buffer.getInt(keyOffsetsAt + 4 * index);
+        int length = keysAt + buffer.getInt(keyOffsetsAt + 4 * (index + 1)) - start;
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = Integer.compare(buffer.get(start + i) & 0xff, key[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    private Place place(MappedByteBuffer buffer, int index) {
+        int nameStart = buffer.getInt(nameOffsetsAt + 4 * index);
+        int nameEnd = buffer.getInt(nameOffsetsAt + 4 * (index + 1));
+        byte[] name = new byte[nameEnd - nameStart];
+        buffer.get(namesAt + nameStart, name);
+        char[] country = {(char) buffer.get(countriesAt + 2 * index), (char) buffer.get(countriesAt + 2 * index + 1)};
+        return new Place(new String(name, StandardCharsets.UTF_8),
+                buffer.getInt(latitudesAt + 4 * index) / GazetteerImporter.COORDINATE_SCALE,
+                buffer.getInt(longitudesAt + 4 * index) / GazetteerImporter.COORDINATE_SCALE,
+                buffer.getInt(populationsAt + 4 * index),
+                new String(country).trim());
+    }
+
+    public static class Place {
+        private final String name;
+        private final double latitude;
+        private final double longitude;
+        private final int population;
+        private final String countryCode;
+
+        public Place(String name, double latitude, double longitude, int population, String countryCode) {
+            this.name = name;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.population = population;
+            this.countryCode = countryCode;
+        }
+
+        public String getName() { return name; }
+        public double getLatitude() { return latitude; }
+        public double getLongitude() { return longitude; }
+        public int getPopulation() { return population; }
+        public String getCountryCode() { return countryCode; }
+    }
+}
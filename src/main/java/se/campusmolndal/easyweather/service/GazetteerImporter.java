@@ -0,0 +1,172 @@
+package se.campusmolndal.easyweather.service;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts a GeoNames cities dump (e.g. {@code cities500.txt}, tab separated) into the
+ * binary file read by {@link Gazetteer}. Every place is indexed under its name and
+ * ASCII name; when several places share a name the most populous one wins.
+ *
+ * File layout (big endian), with {@code n} places sorted by the unsigned bytes of
+ * their normalised UTF-8 key:
+ * <pre>
+ *   int magic, int version, int n
+ *   int[n + 1] key offsets     int[n + 1] display name offsets
+ *   int[n] latitude            int[n] longitude        (degrees * 100000)
+ *   int[n] population          short[n] country code (two ASCII chars)
+ *   byte[] keys                byte[] display names
+ * </pre>
+ */
+public final class GazetteerImporter {
+
+    static final int MAGIC = 0x475a5431; // "GZT1"
+    static final int VERSION = 1;
+    // Coordinates are stored as fixed point with 5 decimals, about 1 m
+    static final double COORDINATE_SCALE = 100_000.0;
+
+    private static final int COLUMN_NAME = 1;
+    private static final int COLUMN_ASCII_NAME = 2;
+    private static final int COLUMN_LATITUDE = 4;
+    private static final int COLUMN_LONGITUDE = 5;
+    private static final int COLUMN_COUNTRY = 8;
+    private static final int COLUMN_POPULATION = 14;
+
+    private GazetteerImporter() {
+    }
+
+    /**
+     * Imports {@code source} into {@code target}, replacing it atomically.
+     * Returns the number of distinct names written.
+     */
+    public static int importGeoNames(Path source, Path target) throws IOException {
+        Map<String, Place> byKey = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] columns = line.split("\t", -1);
+                if (columns.length <= COLUMN_POPULATION) {
+                    continue;
+                }
+                Place place;
+                try {
+                    place = new Place(columns[COLUMN_NAME],
+                            (int) Math.round(Double.parseDouble(columns[COLUMN_LATITUDE]) * COORDINATE_SCALE),
+                            (int) Math.round(Double.parseDouble(columns[COLUMN_LONGITUDE]) * COORDINATE_SCALE),
+                            columns[COLUMN_POPULATION].isEmpty() ? 0 : (int) Math.min(Integer.MAX_VALUE, Long.parseLong(columns[COLUMN_POPULATION])),
+                            columns[COLUMN_COUNTRY]);
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                index(byKey, columns[COLUMN_NAME], place);
+                index(byKey, columns[COLUMN_ASCII_NAME], place);
+            }
+        }
+
+        List<Map.Entry<byte[], Place>> entries = new ArrayList<>(byKey.size());
+        byKey.forEach((key, place) -> entries.add(Map.entry(key.getBytes(StandardCharsets.UTF_8), place)));
+        entries.sort((a, b) -> Arrays.compareUnsigned(a.getKey(), b.getKey()));
+
+        Path directory = target.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, "gazetteer", ".tmp");
+        try (OutputStream file = Files.newOutputStream(temporary);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            write(out, entries);
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return entries.size();
+    }
+
+    private static void index(Map<String, Place> byKey, String name, Place place) {
+        String key = CityNameNormalizer.normalize(name);
+        if (!key.isEmpty()) {
+            byKey.merge(key, place, (existing, candidate) -> candidate.population > existing.population ? candidate : existing);
+        }
+    }
+
+    private static void write(DataOutputStream out, List<Map.Entry<byte[], Place>> entries) throws IOException {
+        int count = entries.size();
+        List<byte[]> names = new ArrayList<>(count);
+        for (Map.Entry<byte[], Place> entry : entries) {
+            names.add(entry.getValue().name.getBytes(StandardCharsets.UTF_8));
+        }
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(count);
+        int offset = 0;
+        for (Map.Entry<byte[], Place> entry : entries) {
+            out.writeInt(offset);
+            offset += entry.getKey().length;
+        }
+        out.writeInt(offset);
+        offset = 0;
+        for (byte[] name : names) {
+            out.writeInt(offset);
+            offset += name.length;
+        }
+        out.writeInt(offset);
+        for (Map.Entry<byte[], Place> entry : entries) {
+            out.writeInt(entry.getValue().latitude);
+        }
+        for (Map.Entry<byte[], Place> entry : entries) {
+            out.writeInt(entry.getValue().longitude);
+        }
+        for (Map.Entry<byte[], Place> entry : entries) {
+            out.writeInt(entry.getValue().population);
+        }
+        for (Map.Entry<byte[], Place> entry : entries) {
+            String country = entry.getValue().country;
+            out.writeByte(country.length() > 0 ? country.charAt(0) : ' ');
+            out.writeByte(country.length() > 1 ? country.charAt(1) : ' ');
+        }
+        for (Map.Entry<byte[], Place> entry : entries) {
+            out.write(entry.getKey());
+        }
+        for (byte[] name : names) {
+            out.write(name);
+        }
+    }
+
+    private static final class Place {
+        private final String name;
+        private final int latitude;
+        private final int longitude;
+        private final int population;
+        private final String country;
+
+        Place(String name, int latitude, int longitude, int population, String country) {
+            this.name = name;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.population = population;
+            this.country = country;
+        }
+    }
+
+    /**
+     * {@code java ... GazetteerImporter cities500.txt data/gazetteer.bin}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: GazetteerImporter <geonames.txt> <gazetteer.bin>");
+            System.exit(2);
+        }
+        long started = System.currentTimeMillis();
+        int count = importGeoNames(Path.of(args[0]), Path.of(args[1]));
+        System.out.println("Imported " + count + " place names in " + (System.currentTimeMillis() - started) + " ms");
+    }
+}
@@ -0,0 +1,124 @@
+package se.campusmolndal.easyweather.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URLEncoder;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * The one place city names are geocoded with OpenCage. Results are cached by
+ * normalised name: found locations for {@code geocoding.cache.ttl-hours}, names OpenCage
+ * has no result for (typos, made-up places) for the much shorter
+ * {@code geocoding.cache.negative-ttl-minutes}. Transient failures are not cached.
+ * Concurrent lookups of the same name share one request.
+ */
+@Component
+public class GeocodingResolver {
+
+    private final UpstreamHttpClient upstreamHttpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // An empty Optional marks a name OpenCage returned no results for
+    private final TtlCache<String, Optional<GeocodingService.LocationInfo>> cache;
+    private final SingleFlight<String, Optional<GeocodingService.LocationInfo>> lookups = new SingleFlight<>();
+    private final Duration negativeTtl;
+
+    @Value("${opencage.api.key:}")
+    private String openCageApiKey;
+
+    @Value("${opencage.base-url:https://api.opencagedata.com/geocode/v1/json}")
+    private String geocodingApiUrl;
+
+    public GeocodingResolver(UpstreamHttpClient upstreamHttpClient,
+                             @Value("${geocoding.cache.max-entries:5000}") int maxEntries,
+                             @Value("${geocoding.cache.ttl-hours:24}") long ttlHours,
+                             @Value("${geocoding.cache.negative-ttl-minutes:10}") long negativeTtlMinutes) {
+        this.upstreamHttpClient = upstreamHttpClient;
+        this.cache = new TtlCache<>(maxEntries, Duration.ofHours(ttlHours));
+        this.negativeTtl = Duration.ofMinutes(negativeTtlMinutes);
+    }
+
+    /**
+     * Returns the location for a city name, or null when it is unknown to OpenCage,
+     * the API key is not configured, or the lookup failed.
+     */
+    public GeocodingService.LocationInfo resolve(String cityName) {
+        String key = CityNameNormalizer.normalize(cityName);
+        Optional<GeocodingService.LocationInfo> cached = cache.get(key);
+        if (cached != null) {
+            return cached.orElse(null);
+        }
+        if (!isConfigured()) {
+            System.err.println("OpenCage API key not configured. Please set opencage.api.key in application.properties");
+            return null;
+        }
+        Optional<GeocodingService.LocationInfo> result = lookups.execute(key, () -> lookup(key, cityName));
+        return result != null ? result.orElse(null) : null;
+    }
+
+    public TtlCache.Stats getCacheStats() {
+        return cache.getStats();
+    }
+
+    private boolean isConfigured() {
+        return openCageApiKey != null && !openCageApiKey.isEmpty() && !openCageApiKey.equals("YOUR_OPENCAGE_API_KEY_HERE");
+    }
+
+    // Returns null on transient failures so they are retried by the next caller
+    private Optional<GeocodingService.LocationInfo> lookup(String key, String cityName) {
+        try {
+            String url = String.format("%s?q=%s&key=%s&limit=1&no_annotations=1&language=en",
+                    geocodingApiUrl, URLEncoder.encode(cityName, StandardCharsets.UTF_8), openCageApiKey);
+            HttpResponse<String> response = upstreamHttpClient.send(upstreamHttpClient.newGet(url).build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                System.err.println("OpenCage API error: " + response.statusCode() + " - " + response.body());
+                return null;
+            }
+            Optional<GeocodingService.LocationInfo> result = Optional.ofNullable(parseLocation(response.body(), cityName));
+            if (result.isPresent()) {
+                cache.put(key, result);
+            } else {
+                System.err.println("No geocoding results found for city: " + cityName);
+                cache.put(key, result, negativeTtl);
+            }
+            return result;
+        } catch (Exception e) {
+            System.err.println("Geocoding failed for " + cityName + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private GeocodingService.LocationInfo parseLocation(String responseBody, String originalCityName) throws Exception {
+        JsonNode results = objectMapper.readTree(responseBody).get("results");
+        if (results == null || !results.isArray() || results.size() == 0) {
+            return null;
+        }
+        JsonNode firstResult = results.get(0);
+        JsonNode geometry = firstResult.get("geometry");
+        JsonNode components = firstResult.get("components");
+        if (geometry == null || components == null) {
+            return null;
+        }
+        String city = componentValue(components, "city");
+        JsonNode formatted = firstResult.get("formatted");
+        return new GeocodingService.LocationInfo(
+                originalCityName,
+                geometry.get("lat").asDouble(),
+                geometry.get("lng").asDouble(),
+                componentValue(components, "country"),
+                componentValue(components, "state"),
+                city != null ? city : originalCityName,
+                formatted != null ? formatted.asText() : null
+        );
+    }
+
+    private static String componentValue(JsonNode components, String key) {
+        JsonNode value = components.get(key);
+        return value != null ? value.asText() : null;
+    }
+}
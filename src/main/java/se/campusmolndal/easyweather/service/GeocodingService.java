@@ -1,107 +1,23 @@
 package se.campusmolndal.easyweather.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import java.net.URLEncoder;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.net.URI;
-import java.nio.charset.StandardCharsets;
-import java.time.Duration;
 
+/**
+ * Location details for a city name, as shown next to the landmark on the weather page.
+ * Lookups go through the shared {@link GeocodingResolver}, so a page render that has
+ * already geocoded the city for its forecast does not call OpenCage again.
+ */
 @Service
 public class GeocodingService {
 
-    @Value("${opencage.api.key:}")
-    private String openCageApiKey;
+    private final GeocodingResolver geocodingResolver;
 
-    private final HttpClient httpClient;
-    private final ObjectMapper objectMapper;
-
-    public GeocodingService() {
-        this.httpClient = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(10))
-                .build();
-        this.objectMapper = new ObjectMapper();
+    public GeocodingService(GeocodingResolver geocodingResolver) {
+        this.geocodingResolver = geocodingResolver;
     }
 
     public LocationInfo getLocationInfo(String cityName) {
-        if (openCageApiKey == null || openCageApiKey.isEmpty()) {
-            System.err.println("OpenCage API key not configured");
-            return null;
-        }
-
-        try {
-            String encodedCity = URLEncoder.encode(cityName, StandardCharsets.UTF_8);
-            String url = String.format(
-                "https://api.opencagedata.com/geocode/v1/json?q=%s&key=%s&limit=1&no_annotations=1&language=en",
-                encodedCity, openCageApiKey
-            );
-
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .header("User-Agent", "WeatherAnywhere/1.0")
-                    .GET()
-                    .build();
-
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-            if (response.statusCode() == 200) {
-                return parseLocationFromResponse(response.body(), cityName);
-            } else {
-                System.err.println("OpenCage API error: " + response.statusCode() + " - " + response.body());
-            }
-        } catch (Exception e) {
-            System.err.println("Geocoding failed for " + cityName + ": " + e.getMessage());
-        }
-
-        return null;
-    }
-
-    private LocationInfo parseLocationFromResponse(String responseBody, String originalCityName) {
-        try {
-            JsonNode rootNode = objectMapper.readTree(responseBody);
-            JsonNode results = rootNode.get("results");
-
-            if (results != null && results.isArray() && results.size() > 0) {
-                JsonNode firstResult = results.get(0);
-                JsonNode geometry = firstResult.get("geometry");
-                JsonNode components = firstResult.get("components");
-
-                if (geometry != null && components != null) {
-                    double latitude = geometry.get("lat").asDouble();
-                    double longitude = geometry.get("lng").asDouble();
-
-                    // Extract location details
-                    String country = getComponentValue(components, "country");
-                    String state = getComponentValue(components, "state");
-                    String city = getComponentValue(components, "city");
-                    String formatted = firstResult.get("formatted").asText();
-
-                    return new LocationInfo(
-                        originalCityName,
-                        latitude,
-                        longitude,
-                        country,
-                        state,
-                        city != null ? city : originalCityName,
-                        formatted
-                    );
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("Error parsing geocoding response: " + e.getMessage());
-        }
-
-        return null;
-    }
-
-    private String getComponentValue(JsonNode components, String key) {
-        JsonNode value = components.get(key);
-        return value != null ? value.asText() : null;
+        return geocodingResolver.resolve(cityName);
     }
 
     public static class LocationInfo {
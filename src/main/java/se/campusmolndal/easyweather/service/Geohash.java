@@ -0,0 +1,91 @@
+package se.campusmolndal.easyweather.service;
+
+/**
+ * Geohash encoding of coordinates into tiles. A hash of precision {@code p} is kept as
+ * a long holding its {@code 5 * p} interleaved bits (longitude first), which makes it
+ * usable directly as a cache key; {@link #toString(long, int)} gives the usual base32
+ * form. Precision 5 tiles are about 4.9 x 4.9 km at the equator.
+ */
+public final class Geohash {
+
+    public static final int MAX_PRECISION = 12;
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    private Geohash() {
+    }
+
+    public static long encode(double latitude, double longitude, int precision) {
+        checkPrecision(precision);
+        double minLat = -90, maxLat = 90;
+        double minLon = -180, maxLon = 180;
+        long hash = 0;
+        int bits = precision * 5;
+        for (int i = 0; i < bits; i++) {
+            hash <<= 1;
+            if ((i & 1) == 0) {
+                double mid = (minLon + maxLon) / 2;
+                if (longitude >= mid) {
+                    hash |= 1;
+                    minLon = mid;
+                } else {
+                    maxLon = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (latitude >= mid) {
+                    hash |= 1;
+                    minLat = mid;
+                } else {
+                    maxLat = mid;
+                }
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the centre of a tile as {@code {latitude, longitude}}.
+     */
+    public static double[] center(long hash, int precision) {
+        checkPrecision(precision);
+        double minLat = -90, maxLat = 90;
+        double minLon = -180, maxLon = 180;
+        int bits = precision * 5;
+        for (int i = 0; i < bits; i++) {
+            boolean set = ((hash >>> (bits - 1 - i)) & 1) != 0;
+            if ((i & 1) == 0) {
+                double mid = (minLon + maxLon) / 2;
+                if (set) {
+                    minLon = mid;
+                } else {
+                    maxLon = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (set) {
+                    minLat = mid;
+                } else {
+                    maxLat = mid;
+                }
+            }
+        }
+        return new double[] {(minLat + maxLat) / 2, (minLon + maxLon) / 2};
+    }
+
+    public static String toString(long hash, int precision) {
+        checkPrecision(precision);
+        char[] chars = new char[precision];
+        for (int i = precision - 1; i >= 0; i--) {
+            chars[i] = BASE32[(int) (hash & 31)];
+            hash >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    public static void checkPrecision(int precision) {
+        if (precision < 1 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Geohash precision must be between 1 and " + MAX_PRECISION + ": " + precision);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package se.campusmolndal.easyweather.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks how often each city is requested using exponentially decayed counters,
+ * so recent popularity counts more than old traffic. Used to pick the cities whose
+ * forecasts are worth refreshing ahead of expiry. Cities are keyed by normalised name,
+ * and a city whose score has decayed below {@code weather.refresh.min-score} is
+ * forgotten.
+ */
+@Component
+public class HotCityTracker {
+
+    // Counters are only incremented and removed inside compute calls on their key, so a
+    // counter cannot be dropped while a request is being added to it
+    private final ConcurrentHashMap<String, DecayedCounter> counters = new ConcurrentHashMap<>();
+    private final double halfLifeMillis;
+    private final int maxTrackedCities;
+    private final double minScore;
+    private final Clock clock;
+
+    @Autowired
+    public HotCityTracker(@Value("${weather.refresh.half-life-minutes:30}") long halfLifeMinutes,
+                          @Value("${weather.refresh.max-tracked-cities:10000}") int maxTrackedCities,
+                          @Value("${weather.refresh.min-score:0.25}") double minScore) {
+        this(halfLifeMinutes, maxTrackedCities, minScore, Clock.systemUTC());
+    }
+
+    public HotCityTracker(long halfLifeMinutes, int maxTrackedCities, double minScore, Clock clock) {
+        this.halfLifeMillis = halfLifeMinutes * 60_000.0;
+        this.maxTrackedCities = maxTrackedCities;
+        this.minScore = minScore;
+        this.clock = clock;
+    }
+
+    /**
+     * Counts a request for a city. Call it only once the weather was actually found,
+     * so misspelt names never become hot.
+     */
+    public void recordRequest(String cityName) {
+        long now = clock.millis();
+        String key = CityNameNormalizer.normalize(cityName);
+        counters.compute(key, (k, counter) -> {
+            DecayedCounter updated = counter != null ? counter : new DecayedCounter(cityName.trim(), now);
+            updated.increment(now, halfLifeMillis);
+            return updated;
+        });
+        if (counters.size() > maxTrackedCities) {
+            prune(now);
+        }
+    }
+
+    /**
+     * Returns the display names of the most requested cities, highest score first.
+     * Cities below the minimum score are dropped on the way and never returned.
+     */
+    public List<String> topCities(int limit) {
+        List<Map.Entry<String, Double>> snapshot = scores(clock.millis());
+        snapshot.sort(Map.Entry.<String, Double>comparingByValue().reversed());
+
+        List<String> top = new ArrayList<>(Math.min(limit, snapshot.size()));
+        for (Map.Entry<String, Double> entry : snapshot) {
+            if (top.size() >= limit) {
+                break;
+            }
+            DecayedCounter counter = counters.get(entry.getKey());
+            if (counter != null) {
+                top.add(counter.cityName);
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Returns the current decayed request count for a city, 0 when it is not tracked.
+     */
+    public double score(String cityName) {
+        DecayedCounter counter = counters.get(CityNameNormalizer.normalize(cityName));
+        return counter != null ? counter.score(clock.millis(), halfLifeMillis) : 0;
+    }
+
+    public int trackedCityCount() {
+        return counters.size();
+    }
+
+    // Drops the coldest half of the counters so the map stays bounded.
+    private synchronized void prune(long now) {
+        if (counters.size() <= maxTrackedCities) {
+            return;
+        }
+        List<Map.Entry<String, Double>> entries = scores(now);
+        entries.sort(Map.Entry.comparingByValue());
+        for (int i = 0; i < entries.size() / 2; i++) {
+            removeIfAtMost(entries.get(i).getKey(), entries.get(i).getValue(), now);
+        }
+    }
+
+    // Scores are captured once so sorting sees a consistent view while counters keep moving.
+    // Counters that have decayed below the floor are removed here.
+    private List<Map.Entry<String, Double>> scores(long now) {
+        List<Map.Entry<String, Double>> scores = new ArrayList<>(counters.size());
+        counters.forEach((key, counter) -> {
+            double score = counter.score(now, halfLifeMillis);
+            if (score < minScore) {
+                removeIfAtMost(key, score, now);
+            } else {
+                scores.add(Map.entry(key, score));
+            }
+        });
+        return scores;
+    }
+
+    // Removes the counter unless a request raised its score since it was read
+    private void removeIfAtMost(String key, double score, long now) {
+        counters.computeIfPresent(key, (k, counter) -> counter.score(now, halfLifeMillis) <= score ? null : counter);
+    }
+
+    private static final class DecayedCounter {
+        private final String cityName;
+        private double score;
+        private long updatedAt;
+
+        private DecayedCounter(String cityName, long now) {
+            this.cityName = cityName;
+            this.updatedAt = now;
+        }
+
+        synchronized void increment(long now, double halfLifeMillis) {
+            score = decayed(now, halfLifeMillis) + 1.0;
+            updatedAt = now;
+        }
+
+        synchronized double score(long now, double halfLifeMillis) {
+            return decayed(now, halfLifeMillis);
+        }
+
+        private double decayed(long now, double halfLifeMillis) {
+            long elapsed = Math.max(0, now - updatedAt);
+            return score * Math.pow(0.5, elapsed / halfLifeMillis);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package se.campusmolndal.easyweather.service;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 3-d tree over points on the globe for nearest-neighbour lookups. Coordinates are
+ * stored as unit vectors, so straight-line distance orders points exactly like
+ * great-circle distance and there is no special case at the poles or the date line.
+ * Each point carries an int reference chosen by the caller.
+ *
+ * Points are stored in flat primitive arrays. {@link #add} plus {@link #rebuild} bulk
+ * loads a balanced tree; {@link #insert} links single points in as they arrive and
+ * rebalances once enough have been added that the tree may have become lopsided.
+ */
+public class KdTree {
+
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final int MIN_REBUILD_INSERTS = 1024;
+
+    private double[] xs = new double[64];
+    private double[] ys = new double[64];
+    private double[] zs = new double[64];
+    private int[] refs = new int[64];
+    private int[] left = new int[64];
+    private int[] right = new int[64];
+    private int size;
+    private int indexed;
+    private int root = -1;
+    private int insertsSinceRebuild;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Appends a point without indexing it; call {@link #rebuild()} after a bulk load.
+     */
+    public void add(double latitude, double longitude, int ref) {
+        lock.writeLock().lock();
+        try {
+            append(latitude, longitude, ref);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a point and makes it visible to {@link #nearest} immediately.
+     */
+    public void insert(double latitude, double longitude, int ref) {
+        lock.writeLock().lock();
+        try {
+            int point = append(latitude, longitude, ref);
+            if (indexed < point) {
+                buildAll(); // points added in bulk are still unindexed
+                return;
+            }
+            link(point);
+            indexed = size;
+            if (++insertsSinceRebuild > Math.max(MIN_REBUILD_INSERTS, size / 4)) {
+                buildAll();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            buildAll();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return indexed;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the indexed point closest to the coordinate, or null when the tree is empty.
+     */
+    public Neighbour nearest(double latitude, double longitude) {
+        double lat = Math.toRadians(latitude);
+        double lon = Math.toRadians(longitude);
+        double[] query = {Math.cos(lat) * Math.cos(lon), Math.cos(lat) * Math.sin(lon), Math.sin(lat)};
+        lock.readLock().lock();
+        try {
+            if (root < 0) {
+                return null;
+            }
+            Search search = new Search(query);
+            search(root, 0, search);
+            double chord = Math.sqrt(search.bestDistanceSquared);
+            double distanceKm = 2 * Math.asin(Math.min(1.0, chord / 2)) * EARTH_RADIUS_KM;
+            return new Neighbour(refs[search.best], distanceKm);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void search(int node, int depth, Search search) {
+        double dx = xs[node] - search.query[0];
+        double dy = ys[node] - search.query[1];
+        double dz = zs[node] - search.query[2];
+        double distanceSquared = dx * dx + dy * dy + dz * dz;
+        if (distanceSquared < search.bestDistanceSquared) {
+            search.bestDistanceSquared = distanceSquared;
+            search.best = node;
+        }
+
+        double delta = search.query[depth % 3] - coordinate(node, depth % 3);
+        int near = delta < 0 ? left[node] : right[node];
+        int far = delta < 0 ? right[node] : left[node];
+        if (near >= 0) {
+            search(near, depth + 1, search);
+        }
+        // The other side can only hold a closer point if the splitting plane is closer
+        if (far >= 0 && delta * delta < search.bestDistanceSquared) {
+            search(far, depth + 1, search);
+        }
+    }
+
+    private int append(double latitude, double longitude, int ref) {
+        if (size == xs.length) {
+            int capacity = size * 2;
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            zs = Arrays.copyOf(zs, capacity);
+            refs = Arrays.copyOf(refs, capacity);
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+        }
+        double lat = Math.toRadians(latitude);
+        double lon = Math.toRadians(longitude);
+        xs[size] = Math.cos(lat) * Math.cos(lon);
+        ys[size] = Math.cos(lat) * Math.sin(lon);
+        zs[size] = Math.sin(lat);
+        refs[size] = ref;
+        left[size] = -1;
+        right[size] = -1;
+        return size++;
+    }
+
+    private void link(int point) {
+        if (root < 0) {
+            root = point;
+            return;
+        }
+        int node = root;
+        int depth = 0;
+        while (true) {
+            int axis = depth % 3;
+            if (coordinate(point, axis) < coordinate(node, axis)) {
+                if (left[node] < 0) {
+                    left[node] = point;
+                    return;
+                }
+                node = left[node];
+            } else {
+                if (right[node] < 0) {
+                    right[node] = point;
+                    return;
+                }
+                node = right[node];
+            }
+            depth++;
+        }
+    }
+
+    private void buildAll() {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+            left[i] = -1;
+            right[i] = -1;
+        }
+        root = build(order, 0, size, 0);
+        indexed = size;
+        insertsSinceRebuild = 0;
+    }
+
+    // Builds a balanced subtree over order[from, to) and returns its root
+    private int build(int[] order, int from, int to, int depth) {
+        if (from >= to) {
+            return -1;
+        }
+        int axis = depth % 3;
+        int mid = (from + to) >>> 1;
+        select(order, from, to - 1, mid, axis);
+        int node = order[mid];
+        left[node] = build(order, from, mid, depth + 1);
+        right[node] = build(order, mid + 1, to, depth + 1);
+        return node;
+    }
+
+    // Quickselect: afterwards order[k] holds the point with the k-th smallest coordinate
+    // on the axis, smaller ones before it and larger or equal ones after it.
+    private void select(int[] order, int low, int high, int k, int axis) {
+        while (low < high) {
+            double pivot = coordinate(order[(low + high) >>> 1], axis);
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (coordinate(order[i], axis) < pivot) {
+                    i++;
+                }
+                while (coordinate(order[j], axis) > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int swap = order[i];
+                    order[i] = order[j];
+                    order[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                high = j;
+            } else if (k >= i) {
+                low = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private double coordinate(int point, int axis) {
+        return axis == 0 ? xs[point] : axis == 1 ? ys[point] : zs[point];
+    }
+
+    private static final class Search {
+        private final double[] query;
+        private int best = -1;
+        private double bestDistanceSquared = Double.POSITIVE_INFINITY;
+
+        Search(double[] query) {
+            this.query = query;
+        }
+    }
+
+    public static final class Neighbour {
+        private final int ref;
+        private final double distanceKm;
+
+        Neighbour(int ref, double distanceKm) {
+            this.ref = ref;
+            this.distanceKm = distanceKm;
+        }
+
+        public int getRef() { return ref; }
+        public double getDistanceKm() { return distanceKm; }
+    }
+}
@@ -0,0 +1,96 @@
+package se.campusmolndal.easyweather.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Service;
+import se.campusmolndal.easyweather.database.CityIndex;
+import se.campusmolndal.easyweather.models.City;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Reverse geocoding against places we already know: the stored cities and, when
+ * enabled, the offline {@link Gazetteer}. Both are loaded into a {@link KdTree} at
+ * startup and cities saved later are inserted as they arrive, so a lookup never
+ * reaches the database or OpenCage.
+ */
+@Service
+public class NearbyCityService {
+
+    private final CityIndex cityIndex;
+    private final Gazetteer gazetteer;
+    private final KdTree tree = new KdTree();
+    // Tree references >= 0 are gazetteer positions, negative ones -(i + 1) index this list
+    private final List<City> cities = new CopyOnWriteArrayList<>();
+
+    public NearbyCityService(CityIndex cityIndex, Gazetteer gazetteer) {
+        this.cityIndex = cityIndex;
+        this.gazetteer = gazetteer;
+    }
+
+    @PostConstruct
+    public void build() {
+        for (City city : cityIndex.getAll()) {
+            cities.add(city);
+            tree.add(city.getLatitude(), city.getLongitude(), -cities.size());
+        }
+        // The gazetteer lists a place once per name it is known by; index each location once
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i < gazetteer.size(); i++) {
+            Gazetteer.Place place = gazetteer.get(i);
+            long location = locationKey(place.getLatitude(), place.getLongitude());
+            if (seen.add(location)) {
+                tree.add(place.getLatitude(), place.getLongitude(), i);
+            }
+        }
+        tree.rebuild();
+        cityIndex.addListener(this::addCity);
+        System.out.println("Nearby city index built with " + tree.size() + " places");
+    }
+
+    // Packs the fixed point coordinates the gazetteer stores into one long, so distinct
+    // locations never share a key
+    static long locationKey(double latitude, double longitude) {
+        long lat = Math.round(latitude * GazetteerImporter.COORDINATE_SCALE);
+        long lon = Math.round(longitude * GazetteerImporter.COORDINATE_SCALE);
+        return (lat << 32) | (lon & 0xffffffffL);
+    }
+
+    public void addCity(City city) {
+        synchronized (cities) {
+            cities.add(city);
+            tree.insert(city.getLatitude(), city.getLongitude(), -cities.size());
+        }
+    }
+
+    /**
+     * Returns the known place closest to the coordinate, or null when nothing is indexed.
+     */
+    public NearbyCity nearest(double latitude, double longitude) {
+        KdTree.Neighbour neighbour = tree.nearest(latitude, longitude);
+        if (neighbour == null) {
+            return null;
+        }
+        int ref = neighbour.getRef();
+        if (ref < 0) {
+            return new NearbyCity(cities.get(-ref - 1), neighbour.getDistanceKm());
+        }
+        Gazetteer.Place place = gazetteer.get(ref);
+        return new NearbyCity(new City(place.getName(), place.getLatitude(), place.getLongitude()), neighbour.getDistanceKm());
+    }
+
+    public static class NearbyCity {
+        private final City city;
+        private final double distanceKm;
+
+        public NearbyCity(City city, double distanceKm) {
+            this.city = city;
+            this.distanceKm = distanceKm;
+        }
+
+        public City getCity() { return city; }
+        public double getDistanceKm() { return distanceKm; }
+    }
+}
@@ -0,0 +1,260 @@
+package se.campusmolndal.easyweather.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import se.campusmolndal.easyweather.models.Forecast;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Token-level reader for Open-Meteo forecast responses.
+ * Reads straight from the response stream and hands only the requested fields to a
+ * visitor, skipping everything else without building a JSON tree. The same walk
+ * serves the small {@code current} block and the large {@code hourly}/{@code daily}
+ * column arrays, which can be read into primitive arrays with the helpers below.
+ */
+public class OpenMeteoResponseParser {
+
+    /** Section name used in the {@code wanted} map for top-level scalar fields such as {@code latitude}. */
+    public static final String ROOT = "";
+
+    private static final Set<String> CURRENT_FIELDS = Set.of("time", "temperature_2m", "weather_code", "wind_speed_10m");
+    public static final Set<String> HOURLY_FIELDS = Set.of("time", "temperature_2m", "wind_speed_10m", "weather_code", "precipitation_probability");
+    public static final Set<String> DAILY_FIELDS = Set.of("time", "temperature_2m_max", "temperature_2m_min", "precipitation_sum", "wind_speed_10m_max", "weather_code");
+
+    private final JsonFactory jsonFactory;
+
+    public OpenMeteoResponseParser() {
+        this(new JsonFactory());
+    }
+
+    public OpenMeteoResponseParser(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    /**
+     * Receives each requested field with the parser positioned on its value token.
+     * Implementations must consume the whole value (scalar or array).
+     */
+    public interface FieldVisitor {
+        void field(String section, String name, JsonParser parser) throws IOException;
+    }
+
+    /**
+     * Walks one forecast object and reports the fields listed in {@code wanted},
+     * keyed by section name ({@code current}, {@code hourly}, {@code daily}, ...).
+     */
+    public void parse(InputStream in, Map<String, Set<String>> wanted, FieldVisitor visitor) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a JSON object from Open-Meteo");
+            }
+            readLocation(parser, wanted, visitor);
+        }
+    }
+
+    public CurrentConditions parseCurrent(InputStream in) throws IOException {
+        CurrentConditions current = new CurrentConditions();
+        parse(in, Map.of("current", CURRENT_FIELDS), (section, name, parser) -> current.set(name, parser));
+        if (!current.isComplete()) {
+            throw new IOException("Open-Meteo response is missing current weather fields");
+        }
+        return current;
+    }
+
+    /**
+     * Parses a multi-location response (comma separated latitude/longitude lists).
+     * Open-Meteo answers with an array of location objects, or a single object when
+     * only one location was requested; both forms are accepted.
+     */
+    public List<CurrentConditions> parseCurrentList(InputStream in) throws IOException {
+        List<CurrentConditions> locations = new ArrayList<>();
+        Map<String, Set<String>> wanted = Map.of("current", CURRENT_FIELDS);
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            JsonToken first = parser.nextToken();
+            if (first == JsonToken.START_OBJECT) {
+                locations.add(readCurrent(parser, wanted));
+            } else if (first == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    locations.add(readCurrent(parser, wanted));
+                }
+            } else {
+                throw new IOException("Unexpected Open-Meteo response");
+            }
+        }
+        return locations;
+    }
+
+    private CurrentConditions readCurrent(JsonParser parser, Map<String, Set<String>> wanted) throws IOException {
+        CurrentConditions current = new CurrentConditions();
+        readLocation(parser, wanted, (section, name, p) -> current.set(name, p));
+        if (!current.isComplete()) {
+            throw new IOException("Open-Meteo response is missing current weather fields");
+        }
+        return current;
+    }
+
+    /**
+     * Parses the hourly and daily blocks of a forecast requested with
+     * {@code timeformat=unixtime} into a column-oriented {@link Forecast}.
+     */
+    public Forecast parseForecast(InputStream in) throws IOException {
+        ForecastColumns columns = new ForecastColumns();
+        parse(in, Map.of(ROOT, Set.of("latitude", "longitude", "utc_offset_seconds"), "hourly", HOURLY_FIELDS, "daily", DAILY_FIELDS),
+                columns::set);
+
+        Forecast forecast = new Forecast(columns.latitude, columns.longitude, columns.utcOffsetSeconds);
+        forecast.setHourlyStart(columns.hourlyStart);
+        forecast.setHourlyTemperature(columns.doubles("hourly.temperature_2m"));
+        forecast.setHourlyWindSpeed(columns.doubles("hourly.wind_speed_10m"));
+        forecast.setHourlyWeatherCode(columns.shorts("hourly.weather_code"));
+        forecast.setHourlyPrecipitationProbability(columns.shorts("hourly.precipitation_probability"));
+        forecast.setDailyTime(columns.dailyTime);
+        forecast.setDailyTemperatureMax(columns.doubles("daily.temperature_2m_max"));
+        forecast.setDailyTemperatureMin(columns.doubles("daily.temperature_2m_min"));
+        forecast.setDailyPrecipitationSum(columns.doubles("daily.precipitation_sum"));
+        forecast.setDailyWindSpeedMax(columns.doubles("daily.wind_speed_10m_max"));
+        forecast.setDailyWeatherCode(columns.shorts("daily.weather_code"));
+        return forecast;
+    }
+
+    // Reads the fields of one location object; the parser is on its START_OBJECT.
+    void readLocation(JsonParser parser, Map<String, Set<String>> wanted, FieldVisitor visitor) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String section = parser.currentName();
+            JsonToken value = parser.nextToken();
+            Set<String> rootFields = wanted.get(ROOT);
+            if (rootFields != null && value.isScalarValue() && rootFields.contains(section)) {
+                visitor.field(ROOT, section, parser);
+                continue;
+            }
+            Set<String> fields = wanted.get(section);
+            if (fields == null || value != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                parser.nextToken();
+                if (fields.contains(name)) {
+                    visitor.field(section, name, parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    public static double[] readDoubleArray(JsonParser parser) throws IOException {
+        double[] values = new double[32];
+        int size = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = parser.currentToken() == JsonToken.VALUE_NULL ? Double.NaN : parser.getDoubleValue();
+        }
+        return Arrays.copyOf(values, size);
+    }
+
+    public static long[] readLongArray(JsonParser parser) throws IOException {
+        long[] values = new long[32];
+        int size = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = parser.currentToken() == JsonToken.VALUE_NULL ? 0 : parser.getLongValue();
+        }
+        return Arrays.copyOf(values, size);
+    }
+
+    public static short[] readShortArray(JsonParser parser) throws IOException {
+        short[] values = new short[32];
+        int size = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = parser.currentToken() == JsonToken.VALUE_NULL ? -1 : parser.getShortValue();
+        }
+        return Arrays.copyOf(values, size);
+    }
+
+    private static final class ForecastColumns {
+        private double latitude = Double.NaN;
+        private double longitude = Double.NaN;
+        private int utcOffsetSeconds;
+        private long hourlyStart;
+        private long[] dailyTime = new long[0];
+        private final Map<String, double[]> doubleColumns = new HashMap<>();
+        private final Map<String, short[]> shortColumns = new HashMap<>();
+
+        void set(String section, String name, JsonParser parser) throws IOException {
+            if (section.equals(ROOT)) {
+                switch (name) {
+                    case "latitude" -> latitude = parser.getDoubleValue();
+                    case "longitude" -> longitude = parser.getDoubleValue();
+                    default -> utcOffsetSeconds = parser.getIntValue();
+                }
+            } else if (name.equals("time")) {
+                long[] times = readLongArray(parser);
+                if (section.equals("hourly")) {
+                    hourlyStart = times.length > 0 ? times[0] : 0;
+                } else {
+                    dailyTime = times;
+                }
+            } else if (name.equals("weather_code") || name.equals("precipitation_probability")) {
+                shortColumns.put(section + "." + name, readShortArray(parser));
+            } else {
+                doubleColumns.put(section + "." + name, readDoubleArray(parser));
+            }
+        }
+
+        double[] doubles(String column) {
+            return doubleColumns.getOrDefault(column, new double[0]);
+        }
+
+        short[] shorts(String column) {
+            return shortColumns.getOrDefault(column, new short[0]);
+        }
+    }
+
+    public static class CurrentConditions {
+        private double temperature = Double.NaN;
+        private double windSpeed = Double.NaN;
+        private int weatherCode = -1;
+        private long time;
+
+        void set(String name, JsonParser parser) throws IOException {
+            if (parser.currentToken() == JsonToken.VALUE_NULL) {
+                return;
+            }
+            switch (name) {
+                case "temperature_2m" -> temperature = parser.getDoubleValue();
+                case "wind_speed_10m" -> windSpeed = parser.getDoubleValue();
+                case "weather_code" -> weatherCode = parser.getIntValue();
+                // Epoch seconds when requested with timeformat=unixtime; unknown otherwise
+                case "time" -> time = parser.currentToken() == JsonToken.VALUE_NUMBER_INT ? parser.getLongValue() : 0;
+                default -> parser.skipChildren();
+            }
+        }
+
+        boolean isComplete() {
+            return !Double.isNaN(temperature) && !Double.isNaN(windSpeed) && weatherCode >= 0;
+        }
+
+        public double getTemperature() { return temperature; }
+        public double getWindSpeed() { return windSpeed; }
+        public int getWeatherCode() { return weatherCode; }
+        public long getTime() { return time; }
+    }
+}
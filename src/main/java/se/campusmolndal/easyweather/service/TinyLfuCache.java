@@ -0,0 +1,323 @@
+package se.campusmolndal.easyweather.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounded in-process cache for large values, limited by total weight (for example
+ * bytes) rather than entry count, with a per-entry time to live. Uses the W-TinyLFU
+ * policy: new entries enter a small LRU window; when they leave it they compete with
+ * the eviction victim of the main segmented LRU, and only the one requested more often
+ * recently (by a count-min frequency sketch) stays. A burst of one-off requests therefore
+ * cannot flush the entries that are requested again and again.
+ */
+public class TinyLfuCache<K, V> {
+
+    private static final double WINDOW_SHARE = 0.01;
+    private static final double PROTECTED_SHARE = 0.80;
+
+    private final long maxWeight;
+    private final long windowMaxWeight;
+    private final long protectedMaxWeight;
+    private final Duration ttl;
+    private final ToLongFunction<V> weigher;
+    private final Clock clock;
+    private final FrequencySketch sketch;
+
+    private final Map<K, Node<K, V>> data = new HashMap<>();
+    // Insertion-ordered; moving a node to the tail is a remove and put
+    private final LinkedHashMap<K, Node<K, V>> window = new LinkedHashMap<>();
+    private final LinkedHashMap<K, Node<K, V>> probation = new LinkedHashMap<>();
+    private final LinkedHashMap<K, Node<K, V>> protectedSegment = new LinkedHashMap<>();
+    private long windowWeight;
+    private long protectedWeight;
+    private long totalWeight;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    public TinyLfuCache(long maxWeight, int expectedEntries, Duration ttl, ToLongFunction<V> weigher) {
+        this(maxWeight, expectedEntries, ttl, weigher, Clock.systemUTC());
+    }
+
+    public TinyLfuCache(long maxWeight, int expectedEntries, Duration ttl, ToLongFunction<V> weigher, Clock clock) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("maxWeight must be positive");
+        }
+        this.maxWeight = maxWeight;
+        this.windowMaxWeight = Math.max(1, (long) (maxWeight * WINDOW_SHARE));
+        this.protectedMaxWeight = (long) ((maxWeight - windowMaxWeight) * PROTECTED_SHARE);
+        this.ttl = ttl;
+        this.weigher = weigher;
+        this.clock = clock;
+        this.sketch = new FrequencySketch(Math.max(16, expectedEntries));
+    }
+
+    /**
+     * Returns the cached value, or null when it is missing or has expired.
+     */
+    public synchronized V get(K key) {
+        sketch.increment(key);
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (node.expiresAt <= clock.millis()) {
+            remove(node);
+            expirations.incrementAndGet();
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        onAccess(node);
+        return node.value;
+    }
+
+    /**
+     * Caches a value. A value heavier than the whole budget is not cached at all.
+     */
+    public void put(K key, V value) {
+        put(key, value, ttl);
+    }
+
+    public synchronized void put(K key, V value, Duration timeToLive) {
+        long weight = weigher.applyAsLong(value);
+        Node<K, V> existing = data.get(key);
+        if (existing != null) {
+            remove(existing);
+        }
+        if (weight > maxWeight) {
+            rejections.incrementAndGet();
+            return;
+        }
+        sketch.increment(key);
+        Node<K, V> node = new Node<>(key, value, weight, clock.millis() + timeToLive.toMillis());
+        node.segment = window;
+        data.put(key, node);
+        window.put(key, node);
+        windowWeight += weight;
+        totalWeight += weight;
+        evict();
+    }
+
+    public synchronized void invalidate(K key) {
+        Node<K, V> node = data.get(key);
+        if (node != null) {
+            remove(node);
+        }
+    }
+
+    public synchronized void clear() {
+        data.clear();
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+        windowWeight = 0;
+        protectedWeight = 0;
+        totalWeight = 0;
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(data.size(), totalWeight, maxWeight, hits.get(), misses.get(),
+                evictions.get(), rejections.get(), expirations.get());
+    }
+
+    private void onAccess(Node<K, V> node) {
+        if (node.segment == probation) {
+            // A second hit promotes to the protected segment; its LRU end drops back to probation
+            probation.remove(node.key);
+            protectedSegment.put(node.key, node);
+            node.segment = protectedSegment;
+            protectedWeight += node.weight;
+            while (protectedWeight > protectedMaxWeight && protectedSegment.size() > 1) {
+                Node<K, V> demoted = protectedSegment.values().iterator().next();
+                protectedSegment.remove(demoted.key);
+                protectedWeight -= demoted.weight;
+                probation.put(demoted.key, demoted);
+                demoted.segment = probation;
+            }
+        } else {
+            node.segment.remove(node.key);
+            node.segment.put(node.key, node);
+        }
+    }
+
+    private void evict() {
+        // Entries leaving the window become admission candidates at the tail of probation
+        Deque<Node<K, V>> candidates = new ArrayDeque<>();
+        while (windowWeight > windowMaxWeight && window.size() > 1) {
+            Node<K, V> node = window.values().iterator().next();
+            window.remove(node.key);
+            windowWeight -= node.weight;
+            probation.put(node.key, node);
+            node.segment = probation;
+            candidates.addLast(node);
+        }
+
+        while (totalWeight > maxWeight) {
+            Node<K, V> victim = firstOf(probation);
+            if (victim == null) {
+                victim = firstOf(protectedSegment) != null ? firstOf(protectedSegment) : firstOf(window);
+            }
+            Node<K, V> candidate = candidates.peekLast();
+            if (candidate == null || candidate == victim || candidates.contains(victim)) {
+                candidates.remove(victim);
+                remove(victim);
+            } else if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                remove(victim);
+            } else {
+                candidates.removeLast();
+                remove(candidate);
+                rejections.incrementAndGet();
+                continue;
+            }
+            evictions.incrementAndGet();
+        }
+    }
+
+    private static <K, V> Node<K, V> firstOf(LinkedHashMap<K, Node<K, V>> segment) {
+        Iterator<Node<K, V>> iterator = segment.values().iterator();
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    private void remove(Node<K, V> node) {
+        data.remove(node.key);
+        node.segment.remove(node.key);
+        if (node.segment == window) {
+            windowWeight -= node.weight;
+        } else if (node.segment == protectedSegment) {
+            protectedWeight -= node.weight;
+        }
+        totalWeight -= node.weight;
+    }
+
+    private static final class Node<K, V> {
+        private final K key;
+        private final V value;
+        private final long weight;
+        private final long expiresAt;
+        private LinkedHashMap<K, Node<K, V>> segment;
+
+        private Node(K key, V value, long weight, long expiresAt) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Count-min sketch of recent request frequency: four rows of small saturating
+     * counters. All counters are halved after every {@code 10 * width} increments, so
+     * popularity fades and entries that were hot long ago do not keep their place.
+     */
+    static final class FrequencySketch {
+        private static final int ROWS = 4;
+        private static final int MAX_COUNT = 15;
+        private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+        private final byte[][] counters;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int expectedEntries) {
+            int width = Integer.highestOneBit(Math.min(expectedEntries, 1 << 24) - 1) << 1;
+            this.counters = new byte[ROWS][width];
+            this.mask = width - 1;
+            this.sampleSize = 10 * width;
+        }
+
+        void increment(Object key) {
+            int hash = spread(key.hashCode());
+            boolean added = false;
+            for (int row = 0; row < ROWS; row++) {
+                int index = indexOf(hash, row);
+                if (counters[row][index] < MAX_COUNT) {
+                    counters[row][index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        int frequency(Object key) {
+            int hash = spread(key.hashCode());
+            int min = MAX_COUNT;
+            for (int row = 0; row < ROWS; row++) {
+                min = Math.min(min, counters[row][indexOf(hash, row)]);
+            }
+            return min;
+        }
+
+        private void reset() {
+            for (byte[] row : counters) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] >>= 1;
+                }
+            }
+            additions /= 2;
+        }
+
+        private int indexOf(int hash, int row) {
+            int h = (hash ^ SEEDS[row]) * SEEDS[(row + 1) % ROWS];
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        private static int spread(int hash) {
+            int h = hash * 0x45D9F3B;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    public static class Stats {
+        private final int size;
+        private final long weight;
+        private final long maxWeight;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long rejections;
+        private final long expirations;
+
+        public Stats(int size, long weight, long maxWeight, long hits, long misses,
+                     long evictions, long rejections, long expirations) {
+            this.size = size;
+            this.weight = weight;
+            this.maxWeight = maxWeight;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.rejections = rejections;
+            this.expirations = expirations;
+        }
+
+        public int getSize() { return size; }
+        public long getWeight() { return weight; }
+        public long getMaxWeight() { return maxWeight; }
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getEvictions() { return evictions; }
+        public long getRejections() { return rejections; }
+        public long getExpirations() { return expirations; }
+
+        public double getHitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package se.campusmolndal.easyweather.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Small bounded in-process cache with a per-entry time to live.
+ * Entries are kept in access order so the least recently used one is evicted
+ * once the cache is full. Hit, miss and eviction counters are kept for monitoring.
+ * Expired entries can optionally be retained for a while longer as a stale fallback
+ * (see {@link #getStale}), for serving last known data when the source is unavailable.
+ */
+public class TtlCache<K, V> {
+
+    private final int maxEntries;
+    private final Duration ttl;
+    private final Duration maxStale;
+    private final Clock clock;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public TtlCache(int maxEntries, Duration ttl) {
+        this(maxEntries, ttl, Duration.ZERO, Clock.systemUTC());
+    }
+
+    public TtlCache(int maxEntries, Duration ttl, Duration maxStale) {
+        this(maxEntries, ttl, maxStale, Clock.systemUTC());
+    }
+
+    public TtlCache(int maxEntries, Duration ttl, Duration maxStale, Clock clock) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.ttl = ttl;
+        this.maxStale = maxStale;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > TtlCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached value, or null when it is missing or has expired.
+     */
+    public V get(K key) {
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            long now = clock.millis();
+            if (entry.expiresAt <= now) {
+                if (entry.expiresAt + maxStale.toMillis() <= now) {
+                    entries.remove(key);
+                    evictions.incrementAndGet();
+                }
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            return entry.value;
+        }
+    }
+
+    /**
+     * Time left before the entry expires, or null when the key is not cached.
+     * Does not touch the hit/miss counters.
+     */
+    public Duration timeToExpiry(K key) {
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            return Duration.ofMillis(Math.max(0, entry.expiresAt - clock.millis()));
+        }
+    }
+
+    /**
+     * Returns the entry even if it has expired, as long as it is still inside the
+     * stale window, together with its age. Returns null when nothing usable is cached.
+     * Does not touch the hit/miss counters.
+     */
+    public Stale<V> getStale(K key) {
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            long now = clock.millis();
+            if (entry == null || entry.expiresAt + maxStale.toMillis() <= now) {
+                return null;
+            }
+            return new Stale<>(entry.value, Duration.ofMillis(now - entry.storedAt), entry.expiresAt <= now);
+        }
+    }
+
+    public void put(K key, V value) {
+        put(key, value, ttl);
+    }
+
+    public void put(K key, V value, Duration timeToLive) {
+        long now = clock.millis();
+        synchronized (entries) {
+            entries.put(key, new Entry<>(value, now, now + timeToLive.toMillis()));
+        }
+    }
+
+    /**
+     * Caches the value unless the key already has an unexpired entry, as one atomic
+     * step. Returns the existing value, or null when the new one was stored.
+     */
+    public V putIfAbsent(K key, V value) {
+        long now = clock.millis();
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && entry.expiresAt > now) {
+                return entry.value;
+            }
+            entries.put(key, new Entry<>(value, now, now + ttl.toMillis()));
+            return null;
+        }
+    }
+
+    public void invalidate(K key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public Stats getStats() {
+        return new Stats(size(), maxEntries, hits.get(), misses.get(), evictions.get());
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long storedAt;
+        private final long expiresAt;
+
+        private Entry(V value, long storedAt, long expiresAt) {
+            this.value = value;
+            this.storedAt = storedAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public static class Stale<V> {
+        private final V value;
+        private final Duration age;
+        private final boolean expired;
+
+        public Stale(V value, Duration age, boolean expired) {
+            this.value = value;
+            this.age = age;
+            this.expired = expired;
+        }
+
+        public V getValue() { return value; }
+        public Duration getAge() { return age; }
+        public boolean isExpired() { return expired; }
+    }
+
+    public static class Stats {
+        private final int size;
+        private final int maxEntries;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+
+        public Stats(int size, int maxEntries, long hits, long misses, long evictions) {
+            this.size = size;
+            this.maxEntries = maxEntries;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+        }
+
+        public int getSize() { return size; }
+        public int getMaxEntries() { return maxEntries; }
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getEvictions() { return evictions; }
+
+        public double getHitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package se.campusmolndal.easyweather.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Shared HTTP client for the weather and geocoding upstreams.
+ * One {@link HttpClient} is reused for every call so connections stay alive and
+ * TLS sessions are negotiated once; HTTP/2 is preferred when the server offers it.
+ * Requests to a single host are capped so a traffic spike cannot open an unbounded
+ * number of upstream streams; calls over the cap queue until a slot frees up. The
+ * queue is bounded too: when it is full a call fails at once with a
+ * {@link RejectedExecutionException}, and a call still unanswered at its deadline,
+ * queued or not, fails with a {@link java.util.concurrent.TimeoutException}.
+ */
+@Component
+public class UpstreamHttpClient {
+
+    private final HttpClient httpClient;
+    private final ExecutorService executor;
+    private final Duration requestTimeout;
+    private final int maxConcurrencyPerHost;
+    private final int maxQueuedPerHost;
+    private final long deadlineMs;
+    private final ConcurrentMap<String, HostLimiter> limiters = new ConcurrentHashMap<>();
+
+    public UpstreamHttpClient(@Value("${upstream.http.connect-timeout-ms:10000}") long connectTimeoutMs,
+                              @Value("${upstream.http.request-timeout-ms:10000}") long requestTimeoutMs,
+                              @Value("${upstream.http.max-concurrency-per-host:32}") int maxConcurrencyPerHost,
+                              @Value("${upstream.http.max-queued-per-host:256}") int maxQueuedPerHost,
+                              @Value("${upstream.http.deadline-ms:20000}") long deadlineMs) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "upstream-http-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(executor)
+                .build();
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+        this.maxConcurrencyPerHost = maxConcurrencyPerHost;
+        this.maxQueuedPerHost = maxQueuedPerHost;
+        this.deadlineMs = deadlineMs;
+    }
+
+    public HttpRequest.Builder newGet(String url) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .timeout(requestTimeout)
+                .header("User-Agent", "WeatherAnywhere/1.0")
+                .GET();
+    }
+
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) {
+        HostLimiter limiter = limiters.computeIfAbsent(request.uri().getHost(), host -> new HostLimiter());
+        return limiter.submit(() -> httpClient.sendAsync(request, bodyHandler));
+    }
+
+    public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) throws IOException {
+        try {
+            return sendAsync(request, bodyHandler).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause != null ? cause.getMessage() : e.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Executor for blocking work (database lookups) that feeds into async upstream calls.
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private final class HostLimiter {
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+
+        <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> request) {
+            if (queued.incrementAndGet() > maxQueuedPerHost) {
+                queued.decrementAndGet();
+                return CompletableFuture.failedFuture(
+                        new RejectedExecutionException("Too many queued upstream requests"));
+            }
+            CompletableFuture<T> result = new CompletableFuture<T>().orTimeout(deadlineMs, TimeUnit.MILLISECONDS);
+            waiting.add(() -> {
+                if (result.isDone()) {
+                    // Timed out while queued; give the slot to the next call
+                    release();
+                    return;
+                }
+                CompletableFuture<T> call;
+                try {
+                    call = request.get();
+                } catch (RuntimeException e) {
+                    release();
+                    result.completeExceptionally(e);
+                    return;
+                }
+                call.whenComplete((value, error) -> {
+                    release();
+                    if (error != null) {
+                        result.completeExceptionally(error);
+                    } else {
+                        result.complete(value);
+                    }
+                });
+            });
+            drain();
+            return result;
+        }
+
+        private void release() {
+            active.decrementAndGet();
+            drain();
+        }
+
+        // Queued calls start on the executor so a completing call never runs the next one
+        // on its own thread, and drain() never recurses.
+        private void drain() {
+            while (!waiting.isEmpty()) {
+                int current = active.get();
+                if (current >= maxConcurrencyPerHost) {
+                    return;
+                }
+                if (!active.compareAndSet(current, current + 1)) {
+                    continue;
+                }
+                Runnable next = waiting.poll();
+                if (next == null) {
+                    active.decrementAndGet();
+                    continue;
+                }
+                queued.decrementAndGet();
+                try {
+                    executor.execute(next);
+                } catch (RejectedExecutionException e) {
+                    // Shutting down; the call fails at its deadline
+                    active.decrementAndGet();
+                    return;
+                }
+            }
+        }
+    }
+}
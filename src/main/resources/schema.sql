@@ -1,6 +1,52 @@
 CREATE TABLE IF NOT EXISTS aliweather (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    cityKey VARCHAR(255) NOT NULL,
     cityName VARCHAR(255) NOT NULL UNIQUE,
     latitude DOUBLE NOT NULL,
-    longitude DOUBLE NOT NULL
+    longitude DOUBLE NOT NULL,
+    UNIQUE INDEX uk_aliweather_city_key (cityKey),
+    INDEX idx_aliweather_lat_lon (latitude, longitude)
+);
+
+CREATE TABLE IF NOT EXISTS weather_observation (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    cityName VARCHAR(255) NOT NULL,
+    observedAt BIGINT NOT NULL,
+    temperature DOUBLE,
+    windSpeed DOUBLE,
+    weatherCode INT,
+    UNIQUE INDEX uk_observation_city_time (cityName, observedAt)
+);
+
+CREATE TABLE IF NOT EXISTS weather_rollup_hourly (
+    cityName VARCHAR(255) NOT NULL,
+    bucketStart BIGINT NOT NULL,
+    samples INT NOT NULL,
+    temperatureSum DOUBLE,
+    temperatureCount INT NOT NULL,
+    temperatureMin DOUBLE,
+    temperatureMax DOUBLE,
+    windSpeedSum DOUBLE,
+    windSpeedCount INT NOT NULL,
+    windSpeedMax DOUBLE,
+    PRIMARY KEY (cityName, bucketStart)
+);
+
+CREATE TABLE IF NOT EXISTS weather_rollup_daily (
+    cityName VARCHAR(255) NOT NULL,
+    bucketStart BIGINT NOT NULL,
+    samples INT NOT NULL,
+    temperatureSum DOUBLE,
+    temperatureCount INT NOT NULL,
+    temperatureMin DOUBLE,
+    temperatureMax DOUBLE,
+    windSpeedSum DOUBLE,
+    windSpeedCount INT NOT NULL,
+    windSpeedMax DOUBLE,
+    PRIMARY KEY (cityName, bucketStart)
+);
+
+CREATE TABLE IF NOT EXISTS weather_rollup_state (
+    name VARCHAR(64) PRIMARY KEY,
+    lastObservationId BIGINT NOT NULL
 );
@@ -0,0 +1,147 @@
+package se.campusmolndal.easyweather.benchmark;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import se.campusmolndal.easyweather.service.OpenMeteoResponseParser;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * Compares the old org.json path (read the body line by line into a String, build a
+ * JSONObject tree, pick fields out of it) with the streaming Jackson parser, for both
+ * a current-weather lookup and a 7 day hourly payload.
+ *
+ * Run with:
+ *   mvn test-compile dependency:build-classpath -Dmdep.includeScope=test -Dmdep.outputFile=target/test.cp
+ *   java -cp "target/test-classes:target/classes:$(cat target/test.cp)" org.openjdk.jmh.Main OpenMeteoParserBenchmark
+ * or from the IDE via {@link #main(String[])}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OpenMeteoParserBenchmark {
+
+    private static final int HOURS = 168;
+
+    private final OpenMeteoResponseParser parser = new OpenMeteoResponseParser();
+    private byte[] response;
+
+    @Setup
+    public void setUp() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"latitude\":57.7,\"longitude\":11.96,\"generationtime_ms\":0.08,\"utc_offset_seconds\":7200,")
+                .append("\"timezone\":\"Europe/Stockholm\",\"timezone_abbreviation\":\"CEST\",\"elevation\":12.0,")
+                .append("\"current_units\":{\"time\":\"iso8601\",\"interval\":\"seconds\",\"temperature_2m\":\"°C\",")
+                .append("\"weather_code\":\"wmo code\",\"wind_speed_10m\":\"km/h\"},")
+                .append("\"current\":{\"time\":\"2024-06-01T12:00\",\"interval\":900,\"temperature_2m\":18.4,")
+                .append("\"weather_code\":3,\"wind_speed_10m\":11.2},")
+                .append("\"hourly_units\":{\"time\":\"iso8601\",\"temperature_2m\":\"°C\",\"weather_code\":\"wmo code\",")
+                .append("\"wind_speed_10m\":\"km/h\"},\"hourly\":{");
+        appendColumn(json, "time", i -> "\"2024-06-" + String.format("%02dT%02d:00", 1 + i / 24, i % 24) + "\"");
+        json.append(',');
+        appendColumn(json, "temperature_2m", i -> String.valueOf(12.0 + (i % 24) * 0.4));
+        json.append(',');
+        appendColumn(json, "weather_code", i -> String.valueOf(i % 4 == 0 ? 61 : 3));
+        json.append(',');
+        appendColumn(json, "wind_speed_10m", i -> String.valueOf(5.0 + (i % 12) * 0.7));
+        json.append("}}");
+        response = json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void appendColumn(StringBuilder json, String name, IntFunction<String> value) {
+        json.append('"').append(name).append("\":[");
+        for (int i = 0; i < HOURS; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(value.apply(i));
+        }
+        json.append(']');
+    }
+
+    @Benchmark
+    public void currentWithOrgJson(Blackhole blackhole) throws IOException {
+        JSONObject current = readTree().getJSONObject("current");
+        blackhole.consume(current.getDouble("temperature_2m"));
+        blackhole.consume(current.getInt("weather_code"));
+        blackhole.consume(current.getDouble("wind_speed_10m"));
+    }
+
+    @Benchmark
+    public void currentWithStreamingParser(Blackhole blackhole) throws IOException {
+        blackhole.consume(parser.parseCurrent(new ByteArrayInputStream(response)));
+    }
+
+    @Benchmark
+    public void hourlyWithOrgJson(Blackhole blackhole) throws IOException {
+        JSONObject hourly = readTree().getJSONObject("hourly");
+        JSONArray temperatures = hourly.getJSONArray("temperature_2m");
+        JSONArray codes = hourly.getJSONArray("weather_code");
+        double[] temperature = new double[temperatures.length()];
+        short[] weatherCode = new short[codes.length()];
+        for (int i = 0; i < temperature.length; i++) {
+            temperature[i] = temperatures.getDouble(i);
+            weatherCode[i] = (short) codes.getInt(i);
+        }
+        blackhole.consume(temperature);
+        blackhole.consume(weatherCode);
+    }
+
+    @Benchmark
+    public void hourlyWithStreamingParser(Blackhole blackhole) throws IOException {
+        parser.parse(new ByteArrayInputStream(response),
+                Map.of("hourly", Set.of("temperature_2m", "weather_code")),
+                (section, name, jsonParser) -> {
+                    if (name.equals("weather_code")) {
+                        blackhole.consume(OpenMeteoResponseParser.readShortArray(jsonParser));
+                    } else {
+                        blackhole.consume(OpenMeteoResponseParser.readDoubleArray(jsonParser));
+                    }
+                });
+    }
+
+    // Mirrors the previous WeatherAPIClient.createConnection body handling
+    private JSONObject readTree() throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(response)));
+        StringBuilder body = new StringBuilder();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            body.append(line);
+        }
+        reader.close();
+        return new JSONObject(body.toString());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(OpenMeteoParserBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
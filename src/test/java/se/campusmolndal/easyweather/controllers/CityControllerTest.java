@@ -0,0 +1,70 @@
+package se.campusmolndal.easyweather.controllers;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import se.campusmolndal.easyweather.CityRepository.CityRepository;
+import se.campusmolndal.easyweather.database.CityLocationRepository;
+import se.campusmolndal.easyweather.service.CitySuggestionService;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class CityControllerTest {
+
+    private CityController controller;
+
+    @BeforeEach
+    void createController() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("RUNSCRIPT FROM 'classpath:/schema.sql'");
+        for (int i = 1; i <= 5; i++) {
+            jdbcTemplate.update("INSERT INTO aliweather (cityKey, cityName, latitude, longitude) VALUES (?, ?, ?, ?)",
+                    "city " + i, "City " + i, i, i);
+        }
+        CityRepository cityRepository = new CityRepository(jdbcTemplate);
+        ReflectionTestUtils.setField(cityRepository, "fetchSize", 2);
+        controller = new CityController(mock(CitySuggestionService.class), mock(CityLocationRepository.class), cityRepository);
+        ReflectionTestUtils.setField(controller, "maxPageSize", 3);
+    }
+
+    @Test
+    void pagesAreCappedAndLinkToTheNextOne() throws IOException {
+        String first = body(controller.list(0, 10));
+        assertTrue(first.contains("\"name\":\"City 3\"") && !first.contains("City 4"), first);
+        assertTrue(first.endsWith("\"next\":3}"), first);
+
+        String last = body(controller.list(3, 10));
+        assertTrue(last.contains("\"name\":\"City 5\""), last);
+        assertTrue(last.endsWith("\"next\":null}"), last);
+    }
+
+    @Test
+    void zeroLimitExportsEverythingAndNegativeLimitIsRejected() throws IOException {
+        String all = body(controller.list(0, 0));
+        assertTrue(all.contains("\"name\":\"City 1\"") && all.contains("\"name\":\"City 5\""), all);
+        assertTrue(all.endsWith("\"next\":null}"), all);
+
+        assertEquals(HttpStatus.BAD_REQUEST, controller.list(0, -1).getStatusCode());
+    }
+
+    private static String body(ResponseEntity<?> response) throws IOException {
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingResponseBody) response.getBody()).writeTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
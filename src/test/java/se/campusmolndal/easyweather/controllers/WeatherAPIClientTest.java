@@ -0,0 +1,67 @@
+package se.campusmolndal.easyweather.controllers;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import se.campusmolndal.easyweather.database.CityIndex;
+import se.campusmolndal.easyweather.database.ObservationWriter;
+import se.campusmolndal.easyweather.models.City;
+import se.campusmolndal.easyweather.service.CircuitBreaker;
+import se.campusmolndal.easyweather.service.CityService;
+import se.campusmolndal.easyweather.service.Gazetteer;
+import se.campusmolndal.easyweather.service.GeocodingResolver;
+import se.campusmolndal.easyweather.service.UpstreamHttpClient;
+import se.campusmolndal.easyweather.service.WeatherIconService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WeatherAPIClientTest {
+
+    private UpstreamHttpClient upstreamHttpClient;
+    private WeatherAPIClient client;
+
+    @BeforeEach
+    void createClient() {
+        upstreamHttpClient = new UpstreamHttpClient(1000, 1000, 4, 16, 2000);
+        CityIndex cityIndex = mock(CityIndex.class);
+        when(cityIndex.get(anyString())).thenReturn(new City("Paris", 48.8566, 2.3522));
+        // Failure threshold 1 and no open period, so every call after a failure is a half-open trial
+        client = new WeatherAPIClient(mock(CityService.class), new WeatherIconService(), upstreamHttpClient,
+                mock(GeocodingResolver.class), cityIndex, mock(Gazetteer.class), mock(ObservationWriter.class),
+                100, 15, 60, 100, 5, 1, 0);
+        // Not a valid URI, so building the request throws before anything is sent
+        ReflectionTestUtils.setField(client, "forecastApiUrl", "http://not a host/v1/forecast");
+    }
+
+    @AfterEach
+    void shutdown() {
+        upstreamHttpClient.shutdown();
+    }
+
+    @Test
+    void requestThatThrowsBeforeSendingStillCountsAsAFailedTrial() {
+        assertNull(client.fetchWeather("Paris"));
+        assertEquals(CircuitBreaker.State.OPEN, client.getForecastBreaker().getState());
+
+        // Without an outcome the half-open trial would stay in flight and block every later call
+        for (int i = 0; i < 3; i++) {
+            assertNull(client.fetchWeather("Paris"));
+            assertEquals(CircuitBreaker.State.OPEN, client.getForecastBreaker().getState());
+        }
+        assertEquals(4, client.getForecastBreaker().getConsecutiveFailures());
+    }
+
+    @Test
+    void forecastRequestThatThrowsBeforeSendingCountsAsAFailure() {
+        assertNull(client.fetchForecast("Paris"));
+        assertNull(client.fetchForecast("Paris"));
+
+        assertEquals(CircuitBreaker.State.OPEN, client.getForecastBreaker().getState());
+        assertEquals(2, client.getForecastBreaker().getConsecutiveFailures());
+    }
+}
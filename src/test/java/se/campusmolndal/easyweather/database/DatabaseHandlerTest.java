@@ -0,0 +1,76 @@
+package se.campusmolndal.easyweather.database;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import se.campusmolndal.easyweather.models.City;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DatabaseHandlerTest {
+
+    private JdbcDataSource dataSource;
+
+    @BeforeEach
+    void createDatabase() throws SQLException {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("RUNSCRIPT FROM 'classpath:/schema.sql'");
+        }
+    }
+
+    @Test
+    void mergeReturnsTheRowAsFirstSaved() throws Exception {
+        assertReturnsStoredRow(new DatabaseHandler(dataSource));
+    }
+
+    @Test
+    void upsertReadsTheStoredRowBack() throws Exception {
+        DatabaseHandler handler = new DatabaseHandler(dataSource);
+        // Take the MySQL path: INSERT ... ON DUPLICATE KEY UPDATE, then read back
+        ReflectionTestUtils.setField(handler, "h2", false);
+        assertReturnsStoredRow(handler);
+    }
+
+    @Test
+    void looksCitiesUpByNormalisedName() throws Exception {
+        DatabaseHandler handler = new DatabaseHandler(dataSource);
+        handler.saveCity("Växjö", 56.8777, 14.8094);
+
+        assertTrue(handler.cityExists(" VAXJO"));
+        assertFalse(handler.cityExists("Lund"));
+        assertEquals("Växjö", handler.getCityFromDatabase("vaxjo").getName());
+        assertEquals(1, handler.getAllCities().size());
+    }
+
+    private void assertReturnsStoredRow(DatabaseHandler handler) throws Exception {
+        City first = handler.saveCity("Göteborg", 57.7089, 11.9746);
+        assertEquals("Göteborg", first.getName());
+        assertEquals(57.7089, first.getLatitude());
+
+        City second = handler.saveCity("goteborg ", 1, 2);
+        assertEquals("Göteborg", second.getName());
+        assertEquals(57.7089, second.getLatitude());
+        assertEquals(11.9746, second.getLongitude());
+        assertEquals(1, count());
+    }
+
+    private int count() throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM aliweather")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
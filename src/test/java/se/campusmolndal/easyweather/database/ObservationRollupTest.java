@@ -0,0 +1,146 @@
+package se.campusmolndal.easyweather.database;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ObservationRollupTest {
+
+    // 2024-06-01T00:00:00Z, the start of a day
+    private static final long DAY = 1_717_200_000L;
+    private static final long HOUR = ObservationRollup.HOUR_SECONDS;
+
+    private JdbcDataSource dataSource;
+    private ObservationRollup rollup;
+
+    @BeforeEach
+    void createDatabase() throws SQLException {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        execute("RUNSCRIPT FROM 'classpath:/schema.sql'");
+        rollup = new ObservationRollup(dataSource);
+        ReflectionTestUtils.setField(rollup, "maxRowsPerRun", 100_000L);
+        ReflectionTestUtils.setField(rollup, "rawRetentionDays", 7);
+        ReflectionTestUtils.setField(rollup, "hourlyRetentionDays", 90);
+    }
+
+    @Test
+    void aggregatesIntoHourlyAndDailyBucketsIgnoringMissingValues() throws SQLException {
+        observe("Lund", DAY + 60, 10.0, 2.0);
+        observe("Lund", DAY + 1800, null, 6.0);
+        observe("Lund", DAY + 2 * HOUR, 20.0, null);
+        observe("Malmö", DAY + 60, null, null);
+
+        assertEquals(3, rollup.rollUp());
+
+        assertEquals(List.of(
+                "Lund@" + DAY + " n=2 t=10.0/1 [10.0,10.0] w=8.0/2 max=6.0",
+                "Lund@" + (DAY + 2 * HOUR) + " n=1 t=20.0/1 [20.0,20.0] w=null/0 max=null",
+                "Malmö@" + DAY + " n=1 t=null/0 [null,null] w=null/0 max=null"), buckets("weather_rollup_hourly"));
+        assertEquals(List.of(
+                "Lund@" + DAY + " n=3 t=30.0/2 [10.0,20.0] w=8.0/2 max=6.0",
+                "Malmö@" + DAY + " n=1 t=null/0 [null,null] w=null/0 max=null"), buckets("weather_rollup_daily"));
+    }
+
+    @Test
+    void laterRunsMergeIntoExistingBucketsWithNulls() throws SQLException {
+        observe("Kiruna", DAY + 60, null, 5.0);
+        observe("Lund", DAY + 60, null, 4.0);
+        observe("Malmö", DAY + 60, 15.0, null);
+        rollup.rollUp();
+
+        observe("Kiruna", DAY + 120, null, 7.0);
+
+        observe("Lund", DAY + 120, 12.0, null);
+        observe("Malmö", DAY + 120, null, null);
+        observe("Malmö", DAY + 180, 9.0, 3.0);
+        assertEquals(3, rollup.rollUp());
+        assertEquals(0, rollup.rollUp());
+
+        // A sum with nothing observed in either run stays NULL rather than becoming 0
+        List<String> expected = List.of(
+                "Kiruna@" + DAY + " n=2 t=null/0 [null,null] w=12.0/2 max=7.0",
+                "Lund@" + DAY + " n=2 t=12.0/1 [12.0,12.0] w=4.0/1 max=4.0",
+                "Malmö@" + DAY + " n=3 t=24.0/2 [9.0,15.0] w=3.0/1 max=3.0");
+        assertEquals(expected, buckets("weather_rollup_hourly"));
+        assertEquals(expected, buckets("weather_rollup_daily"));
+    }
+
+    @Test
+    void countsEveryObservationOnceAcrossLimitedRuns() throws SQLException {
+        ReflectionTestUtils.setField(rollup, "maxRowsPerRun", 2L);
+        for (int i = 0; i < 5; i++) {
+            observe("Lund", DAY + i * 600, (double) i, 1.0);
+        }
+
+        int runs = 0;
+        while (rollup.rollUp() > 0) {
+            runs++;
+        }
+
+        assertEquals(3, runs);
+        assertEquals(List.of("Lund@" + DAY + " n=5 t=10.0/5 [0.0,4.0] w=5.0/5 max=1.0"), buckets("weather_rollup_hourly"));
+    }
+
+    @Test
+    void retentionDropsOnlyOldRolledUpRowsAndBuckets() throws SQLException {
+        long now = DAY + 100L * ObservationRollup.DAY_SECONDS;
+        observe("Lund", DAY, 1.0, 1.0);
+        observe("Lund", now - 3L * ObservationRollup.DAY_SECONDS, 2.0, 2.0);
+        rollup.rollUp();
+        observe("Lund", DAY + 60, 3.0, 3.0);
+
+        rollup.applyRetention(now);
+
+        // The old row that has not been rolled up yet stays
+        assertEquals(2, count("weather_observation"));
+        assertEquals(1, count("weather_rollup_hourly"));
+        assertEquals(2, count("weather_rollup_daily"));
+    }
+
+    private void observe(String cityName, long observedAt, Double temperature, Double windSpeed) throws SQLException {
+        execute("INSERT INTO weather_observation (cityName, observedAt, temperature, windSpeed) VALUES ('" + cityName + "', "
+                + observedAt + ", " + temperature + ", " + windSpeed + ")");
+    }
+
+    private List<String> buckets(String table) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT cityName, bucketStart, samples, temperatureSum, temperatureCount, temperatureMin, "
+                     + "temperatureMax, windSpeedSum, windSpeedCount, windSpeedMax FROM " + table + " ORDER BY cityName, bucketStart")) {
+            while (rs.next()) {
+                rows.add(rs.getString(1) + "@" + rs.getLong(2) + " n=" + rs.getInt(3)
+                        + " t=" + rs.getObject(4) + "/" + rs.getInt(5) + " [" + rs.getObject(6) + "," + rs.getObject(7) + "]"
+                        + " w=" + rs.getObject(8) + "/" + rs.getInt(9) + " max=" + rs.getObject(10));
+            }
+        }
+        return rows;
+    }
+
+    private int count(String table) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
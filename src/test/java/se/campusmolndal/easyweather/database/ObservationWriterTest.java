@@ -0,0 +1,105 @@
+package se.campusmolndal.easyweather.database;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import se.campusmolndal.easyweather.models.WeatherInfo;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ObservationWriterTest {
+
+    private JdbcDataSource dataSource;
+    private final List<ObservationWriter> writers = new ArrayList<>();
+
+    @BeforeEach
+    void createDatabase() throws SQLException {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("RUNSCRIPT FROM 'classpath:/schema.sql'");
+        }
+    }
+
+    @AfterEach
+    void stopWriters() {
+        writers.forEach(ObservationWriter::shutdown);
+    }
+
+    @Test
+    void writesQueuedObservationsInBatchesOnShutdown() throws SQLException {
+        ObservationWriter writer = writer(true);
+        writer.record("Göteborg", observation(14.5, 3.2, 2, 1_717_243_200L));
+        writer.record("Malmö", observation(16.0, Double.NaN, -1, 1_717_243_200L));
+        writer.shutdown();
+
+        assertEquals(List.of("Göteborg@1717243200 14.5 3.2 2", "Malmö@1717243200 16.0 null null"), rows());
+        assertEquals(2L, writer.getStats().get("written"));
+    }
+
+    @Test
+    void storesAnObservationOnceEvenAcrossWriters() throws SQLException {
+        ObservationWriter writer = writer(true);
+        WeatherInfo info = observation(14.5, 3.2, 2, 1_717_243_200L);
+        writer.record("Göteborg", info);
+        writer.record("Göteborg", observation(14.5, 3.2, 2, 1_717_243_200L));
+        writer.record("Göteborg", observation(15.0, 3.0, 3, 1_717_244_100L));
+        writer.shutdown();
+
+        // A fresh writer has no memory of what was recorded; the unique key still holds
+        ObservationWriter restarted = writer(true);
+        restarted.record("Göteborg", observation(99, 99, 99, 1_717_243_200L));
+        restarted.shutdown();
+
+        assertEquals(List.of("Göteborg@1717243200 14.5 3.2 2", "Göteborg@1717244100 15.0 3.0 3"), rows());
+        assertEquals(0L, restarted.getStats().get("failedBatches"));
+    }
+
+    @Test
+    void ignoresStaleWeatherAndDisabledWriters() throws SQLException {
+        ObservationWriter writer = writer(true);
+        writer.record("Göteborg", observation(14.5, 3.2, 2, 1_717_243_200L).asStale(600));
+        writer.record("Göteborg", null);
+        writer.shutdown();
+
+        ObservationWriter disabled = writer(false);
+        disabled.record("Göteborg", observation(14.5, 3.2, 2, 1_717_243_200L));
+        disabled.shutdown();
+
+        assertEquals(List.of(), rows());
+    }
+
+    private ObservationWriter writer(boolean enabled) {
+        ObservationWriter writer = new ObservationWriter(dataSource, enabled, 100, 50, 50, 15);
+        writer.start();
+        writers.add(writer);
+        return writer;
+    }
+
+    private static WeatherInfo observation(double temperature, double windSpeed, int weatherCode, long observedAt) {
+        WeatherInfo info = new WeatherInfo(temperature, windSpeed, weatherCode);
+        info.setObservedAt(observedAt);
+        return info;
+    }
+
+    private List<String> rows() throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT cityName, observedAt, temperature, windSpeed, weatherCode FROM weather_observation ORDER BY id")) {
+            while (rs.next()) {
+                rows.add(rs.getString(1) + "@" + rs.getLong(2) + " " + rs.getObject(3) + " " + rs.getObject(4) + " " + rs.getObject(5));
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,119 @@
+package se.campusmolndal.easyweather.database;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SchemaMigratorTest {
+
+    private JdbcDataSource dataSource;
+
+    @BeforeEach
+    void createDatabase() {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+    }
+
+    @Test
+    void upgradeBackfillsKeysRemovesDuplicatesAndCreatesIndex() throws SQLException {
+        execute("CREATE TABLE aliweather (id INT AUTO_INCREMENT PRIMARY KEY, cityName VARCHAR(255) UNIQUE, latitude DOUBLE, longitude DOUBLE)",
+                "INSERT INTO aliweather (cityName, latitude, longitude) VALUES ('Paris', 1, 2), ('PARIS ', 3, 4), ('Göteborg', 5, 6)");
+
+        new SchemaMigrator(dataSource).migrate();
+
+        assertEquals(List.of("Paris:paris", "Göteborg:goteborg"), rows());
+        assertUniqueKeyEnforced();
+        assertThrows(SQLException.class, () -> execute("INSERT INTO aliweather (cityName) VALUES ('Lund')"));
+    }
+
+    @Test
+    void indexIsCreatedWhenKeysAreAlreadyClean() throws SQLException {
+        execute("CREATE TABLE aliweather (id INT AUTO_INCREMENT PRIMARY KEY, cityKey VARCHAR(255), cityName VARCHAR(255) UNIQUE, latitude DOUBLE, longitude DOUBLE)",
+                "INSERT INTO aliweather (cityKey, cityName, latitude, longitude) VALUES ('paris', 'Paris', 1, 2)");
+
+        new SchemaMigrator(dataSource).migrate();
+
+        assertUniqueKeyEnforced();
+    }
+
+    @Test
+    void runningTwiceIsANoOp() throws SQLException {
+        execute("CREATE TABLE aliweather (id INT AUTO_INCREMENT PRIMARY KEY, cityName VARCHAR(255) UNIQUE, latitude DOUBLE, longitude DOUBLE)",
+                "INSERT INTO aliweather (cityName, latitude, longitude) VALUES ('Paris', 1, 2)");
+
+        new SchemaMigrator(dataSource).migrate();
+        new SchemaMigrator(dataSource).migrate();
+
+        assertEquals(List.of("Paris:paris"), rows());
+        try (Connection conn = dataSource.getConnection()) {
+            assertTrue(SchemaMigrator.hasIndex(conn, "aliweather", "idx_aliweather_lat_lon"));
+        }
+    }
+
+    @Test
+    void observationsBecomeUniquePerCityAndTime() throws SQLException {
+        execute("CREATE TABLE aliweather (id INT AUTO_INCREMENT PRIMARY KEY, cityKey VARCHAR(255), cityName VARCHAR(255) UNIQUE, latitude DOUBLE, longitude DOUBLE)",
+                "CREATE TABLE weather_observation (id BIGINT AUTO_INCREMENT PRIMARY KEY, cityName VARCHAR(255) NOT NULL, observedAt BIGINT NOT NULL, "
+                        + "temperature DOUBLE, windSpeed DOUBLE, weatherCode INT, INDEX idx_observation_city_time (cityName, observedAt))",
+                "INSERT INTO weather_observation (cityName, observedAt, temperature) VALUES "
+                        + "('Paris', 100, 1), ('Paris', 100, 2), ('Paris', 200, 3), ('Lund', 100, 4), ('Paris', 100, 5)");
+
+        new SchemaMigrator(dataSource).migrate();
+        new SchemaMigrator(dataSource).migrate();
+
+        List<String> observations = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT cityName, observedAt, temperature FROM weather_observation ORDER BY id")) {
+            while (rs.next()) {
+                observations.add(rs.getString(1) + "@" + rs.getLong(2) + "=" + rs.getDouble(3));
+            }
+            assertTrue(SchemaMigrator.hasIndex(conn, "weather_observation", "uk_observation_city_time"));
+            assertFalse(SchemaMigrator.hasIndex(conn, "weather_observation", "idx_observation_city_time"));
+        }
+        assertEquals(List.of("Paris@100=1.0", "Paris@200=3.0", "Lund@100=4.0"), observations);
+        assertThrows(SQLException.class,
+                () -> execute("INSERT INTO weather_observation (cityName, observedAt) VALUES ('Lund', 100)"));
+    }
+
+    private void assertUniqueKeyEnforced() throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            assertTrue(SchemaMigrator.hasIndex(conn, "aliweather", "uk_aliweather_city_key"));
+        }
+        assertThrows(SQLException.class,
+                () -> execute("INSERT INTO aliweather (cityKey, cityName) VALUES ('paris', 'paris')"));
+    }
+
+    private List<String> rows() throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT cityName, cityKey FROM aliweather ORDER BY id")) {
+            while (rs.next()) {
+                rows.add(rs.getString(1) + ":" + rs.getString(2));
+            }
+        }
+        return rows;
+    }
+
+    private void execute(String... statements) throws SQLException {
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            for (String sql : statements) {
+                stmt.executeUpdate(sql);
+            }
+        }
+    }
+}
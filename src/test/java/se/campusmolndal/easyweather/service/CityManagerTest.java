@@ -0,0 +1,20 @@
+package se.campusmolndal.easyweather.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CityManagerTest {
+
+    @Test
+    void findsBuiltInCitiesByNameOrAlias() {
+        new CityManager();
+        new CityManager();
+
+        assertEquals("Göteborg", CityManager.getCity("Göteborg").getName());
+        assertEquals("Göteborg", CityManager.getCity("Götet").getName());
+        assertEquals("Stockholm", CityManager.getCity("Storstan").getName());
+        assertNull(CityManager.getCity("Lund"));
+    }
+}
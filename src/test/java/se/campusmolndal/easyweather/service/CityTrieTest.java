@@ -0,0 +1,66 @@
+package se.campusmolndal.easyweather.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CityTrieTest {
+
+    @Test
+    void findsNamesByNormalisedPrefix() {
+        CityTrie trie = new CityTrie();
+        trie.insert("Göteborg", "Göteborg", null, 57.7089, 11.9746);
+        trie.insert("Gothenburg", "Göteborg", "Gothenburg", 57.7089, 11.9746);
+        trie.insert("Malmö", "Malmö", null, 55.6044, 13.0038);
+
+        assertEquals(List.of("goteborg", "gothenburg"), terms(trie.search("GÖT", 10)));
+        assertEquals(List.of("malmo"), terms(trie.search("  malm", 10)));
+        assertTrue(trie.search("x", 10).isEmpty());
+    }
+
+    @Test
+    void shorterCompletionsComeFirstAndResultsAreCapped() {
+        CityTrie trie = new CityTrie();
+        trie.insert("Stockholms län", "Stockholms län", null, 59.3, 18.0);
+        trie.insert("Stockholm", "Stockholm", null, 59.3293, 18.0686);
+        trie.insert("Sto", "Sto", null, 0, 0);
+
+        assertEquals(List.of("sto", "stockholm", "stockholms lan"), terms(trie.search("sto", 10)));
+        assertEquals(List.of("sto", "stockholm"), terms(trie.search("sto", 2)));
+    }
+
+    @Test
+    void keepsAliasAndCoordinatesOnTheEntry() {
+        CityTrie trie = new CityTrie();
+        trie.insert("Göteborg", "Göteborg", null, 57.7089, 11.9746);
+        trie.insert("Götet", "Göteborg", "Götet", 57.7089, 11.9746);
+
+        CityTrie.Entry own = trie.search("goteborg", 1).get(0);
+        CityTrie.Entry alias = trie.search("gotet", 1).get(0);
+        assertNull(own.getAlias());
+        assertEquals("Götet", alias.getAlias());
+        assertEquals("Göteborg", alias.getName());
+        assertEquals(57.7089, alias.getLatitude());
+        assertEquals(11.9746, alias.getLongitude());
+    }
+
+    @Test
+    void ignoresDuplicateAndBlankTerms() {
+        CityTrie trie = new CityTrie();
+        trie.insert("Kiruna", "Kiruna", null, 67.8557, 20.2255);
+        trie.insert("KIRUNA", "Kiruna", null, 67.8557, 20.2255);
+        trie.insert("   ", "Nowhere", null, 0, 0);
+
+        assertEquals(1, trie.size());
+        assertEquals(1, trie.search("kir", 10).size());
+    }
+
+    private static List<String> terms(List<CityTrie.Entry> entries) {
+        return entries.stream().map(CityTrie.Entry::getTerm).collect(Collectors.toList());
+    }
+}
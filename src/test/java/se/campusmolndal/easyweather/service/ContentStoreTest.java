@@ -0,0 +1,175 @@
+package se.campusmolndal.easyweather.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContentStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<ContentStore> stores = new ArrayList<>();
+
+    @AfterEach
+    void closeStores() {
+        stores.forEach(ContentStore::close);
+    }
+
+    @Test
+    void valuesSurviveReopening() {
+        ContentStore store = open(1 << 20);
+        store.put("landmark:Göteborg", "<svg>Poseidon</svg>", null);
+        store.put("landmark:Lund", "<svg>domkyrkan</svg>", Duration.ofDays(1));
+        store.put("landmark:Göteborg", "<svg>Skansen Kronan</svg>", null);
+        store.close();
+
+        ContentStore reopened = open(1 << 20);
+        assertEquals("<svg>Skansen Kronan</svg>", reopened.get("landmark:Göteborg"));
+        assertEquals("<svg>domkyrkan</svg>", reopened.get("landmark:Lund"));
+        assertNull(reopened.timeToExpiry("landmark:Göteborg"));
+        assertTrue(reopened.timeToExpiry("landmark:Lund").compareTo(Duration.ofHours(23)) > 0);
+        assertNull(reopened.get("landmark:Malmö"));
+    }
+
+    @Test
+    void tornLastRecordIsCutOffOnReopen() throws IOException {
+        ContentStore store = open(1 << 20);
+        store.put("a", "first", null);
+        store.put("b", "second", null);
+        store.close();
+
+        Path segment = segmentFiles().get(0);
+        long size = Files.size(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 3);
+        }
+
+        ContentStore reopened = open(1 << 20);
+        assertEquals("first", reopened.get("a"));
+        assertNull(reopened.get("b"));
+        assertTrue(Files.size(segment) < size - 3);
+
+        // New writes go after the last complete record and are read back after a restart
+        reopened.put("c", "third", null);
+        reopened.close();
+        ContentStore again = open(1 << 20);
+        assertEquals("first", again.get("a"));
+        assertEquals("third", again.get("c"));
+    }
+
+    @Test
+    void removalsArePersistedAsTombstones() {
+        ContentStore store = open(1 << 20);
+        store.put("landmark:Lund", "svg", null);
+        store.put("artwork:Lund", "art 1", null);
+        store.put("artwork:Malmö", "art 2", null);
+        store.remove("landmark:Lund");
+        assertEquals(2, store.removeByPrefix("artwork:"));
+        store.put("artwork:Kiruna", "art 3", null);
+        store.close();
+
+        ContentStore reopened = open(1 << 20);
+        assertNull(reopened.get("landmark:Lund"));
+        assertNull(reopened.get("artwork:Lund"));
+        assertNull(reopened.get("artwork:Malmö"));
+        assertEquals("art 3", reopened.get("artwork:Kiruna"));
+        assertEquals(1, reopened.getStats().get("entries"));
+    }
+
+    @Test
+    void compactionKeepsOnlyLiveValues() throws IOException {
+        ContentStore store = open(256);
+        for (int i = 0; i < 50; i++) {
+            store.put("artwork:" + (i % 3), "version " + i, null);
+        }
+        store.put("expiring", "soon gone", Duration.ofMillis(1));
+        long before = (long) store.getStats().get("totalBytes");
+        assertTrue((int) store.getStats().get("segments") > 1);
+        sleep(5);
+
+        store.compactIfNeeded();
+
+        assertEquals(1L, store.getStats().get("compactions"));
+        assertEquals(store.getStats().get("liveBytes"), store.getStats().get("totalBytes"));
+        assertTrue((long) store.getStats().get("totalBytes") < before);
+        assertEquals("version 48", store.get("artwork:0"));
+        assertEquals("version 49", store.get("artwork:1"));
+        assertNull(store.get("expiring"));
+        store.close();
+
+        ContentStore reopened = open(256);
+        assertEquals("version 47", reopened.get("artwork:2"));
+        assertEquals(3, reopened.getStats().get("entries"));
+        assertEquals(reopened.getStats().get("segments"), segmentFiles().size());
+    }
+
+    @Test
+    void expiredValuesAreNotReturned() {
+        ContentStore store = open(1 << 20);
+        store.put("artwork:Lund", "art", Duration.ofMillis(1));
+        sleep(5);
+        assertNull(store.get("artwork:Lund"));
+        assertEquals(Duration.ZERO, store.timeToExpiry("artwork:Lund"));
+    }
+
+    @Test
+    void segmentSizeIsCappedAtTheAddressableLimit() {
+        ContentStore store = open(Long.MAX_VALUE);
+        assertEquals((long) Integer.MAX_VALUE, ReflectionTestUtils.getField(store, "segmentBytes"));
+        store.put("a", "value", null);
+        assertEquals("value", store.get("a"));
+    }
+
+    @Test
+    void disabledStoreKeepsNothing() {
+        ContentStore store = new ContentStore();
+        store.open();
+        store.put("a", "value", null);
+        assertNull(store.get("a"));
+        assertEquals(false, store.getStats().get("enabled"));
+    }
+
+    private ContentStore open(long segmentBytes) {
+        ContentStore store = new ContentStore();
+        ReflectionTestUtils.setField(store, "enabled", true);
+        ReflectionTestUtils.setField(store, "path", directory.toString());
+        ReflectionTestUtils.setField(store, "segmentBytes", segmentBytes);
+        ReflectionTestUtils.setField(store, "compactGarbageRatio", 0.5);
+        store.open();
+        stores.add(store);
+        return store;
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "segment-*.log")) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+        return files;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package se.campusmolndal.easyweather.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GazetteerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void importsNamesAndAsciiNamesKeepingTheMostPopulousPlace() throws IOException {
+        Path source = writeSource(
+                row("Göteborg", "Goteborg", 57.70716, 11.96679, "SE", "572799"),
+                row("Malmö", "Malmo", 55.60587, 13.00073, "SE", "301706"),
+                row("Paris", "Paris", 48.85341, 2.3488, "FR", "2138551"),
+                row("Paris", "Paris", 33.66094, -95.55551, "US", "24782"),
+                row("Nowhere", "Nowhere", 0, 0, "XX", "").replace("\t0.0\t", "\tnorth\t"),
+                "a truncated line");
+        Path target = directory.resolve("data/gazetteer.bin");
+
+        // Names and ASCII names that normalise to the same key count once; bad rows are skipped
+        assertEquals(3, GazetteerImporter.importGeoNames(source, target));
+
+        Gazetteer gazetteer = open(target, source);
+        assertTrue(gazetteer.isAvailable());
+        assertEquals(3, gazetteer.size());
+
+        Gazetteer.Place paris = gazetteer.lookup("  PARIS ");
+        assertEquals("Paris", paris.getName());
+        assertEquals("FR", paris.getCountryCode());
+        assertEquals(2138551, paris.getPopulation());
+        assertEquals(48.85341, paris.getLatitude(), 1e-5);
+        assertEquals(2.3488, paris.getLongitude(), 1e-5);
+
+        assertEquals("Göteborg", gazetteer.lookup("goteborg").getName());
+        assertEquals("Malmö", gazetteer.lookup("Malmö").getName());
+        assertNull(gazetteer.lookup("nowhere"));
+        assertNull(gazetteer.lookup("Atlantis"));
+    }
+
+    @Test
+    void iteratesPlacesInKeyOrder() throws IOException {
+        Path source = writeSource(
+                row("Örebro", "Orebro", 59.27412, 15.2066, "SE", "98573"),
+                row("Kiruna", "Kiruna", 67.85572, 20.22513, "SE", "18154"),
+                row("Alingsås", "Alingsas", 57.93033, 12.53345, "SE", "25029"));
+        Path target = directory.resolve("gazetteer.bin");
+        GazetteerImporter.importGeoNames(source, target);
+
+        Gazetteer gazetteer = open(target, source);
+        assertEquals("Alingsås", gazetteer.get(0).getName());
+        assertEquals("Kiruna", gazetteer.get(1).getName());
+        assertEquals("Örebro", gazetteer.get(2).getName());
+    }
+
+    @Test
+    void buildsOnStartupAndKeepsTheBuiltFileWhenTheSourceIsGone() throws IOException {
+        Path source = writeSource(row("Kiruna", "Kiruna", 67.85572, 20.22513, "SE", "18154"));
+        Path target = directory.resolve("gazetteer.bin");
+
+        assertTrue(open(target, source).isAvailable());
+        assertTrue(Files.exists(target));
+
+        Files.delete(source);
+        Gazetteer reopened = open(target, source);
+        assertTrue(reopened.isAvailable());
+        assertEquals("Kiruna", reopened.lookup("kiruna").getName());
+    }
+
+    @Test
+    void staysUnavailableWithoutDataOrWhenDisabled() throws IOException {
+        Gazetteer missing = open(directory.resolve("missing.bin"), directory.resolve("missing.txt"));
+        assertFalse(missing.isAvailable());
+        assertNull(missing.lookup("Kiruna"));
+        assertEquals(0, missing.size());
+
+        Path notAGazetteer = Files.writeString(directory.resolve("other.bin"), "definitely not a gazetteer file");
+        assertFalse(open(notAGazetteer, null).isAvailable());
+
+        Gazetteer disabled = new Gazetteer();
+        disabled.open();
+        assertFalse(disabled.isAvailable());
+    }
+
+    private Gazetteer open(Path file, Path source) {
+        Gazetteer gazetteer = new Gazetteer();
+        ReflectionTestUtils.setField(gazetteer, "enabled", true);
+        ReflectionTestUtils.setField(gazetteer, "path", file.toString());
+        ReflectionTestUtils.setField(gazetteer, "source", source != null ? source.toString() : "");
+        gazetteer.open();
+        return gazetteer;
+    }
+
+    private Path writeSource(String... rows) throws IOException {
+        return Files.write(directory.resolve("cities500.txt"), List.of(rows), StandardCharsets.UTF_8);
+    }
+
+    // The 19 tab separated columns of a GeoNames cities dump
+    private static String row(String name, String asciiName, double latitude, double longitude, String country, String population) {
+        return String.join("\t", "1", name, asciiName, "", String.valueOf(latitude), String.valueOf(longitude),
+                "P", "PPL", country, "", "", "", "", "", population, "", "0", "Europe/Stockholm", "2024-01-01");
+    }
+}
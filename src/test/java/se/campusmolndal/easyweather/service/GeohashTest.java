@@ -0,0 +1,60 @@
+package se.campusmolndal.easyweather.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeohashTest {
+
+    @Test
+    void matchesReferenceHashes() {
+        assertEquals("u4pruydqqvj", Geohash.toString(Geohash.encode(57.64911, 10.40744, 11), 11));
+        assertEquals("ezs42", Geohash.toString(Geohash.encode(42.605, -5.603, 5), 5));
+        assertEquals("u6", Geohash.toString(Geohash.encode(57.7089, 11.9746, 2), 2));
+    }
+
+    @Test
+    void centerLiesInsideTheTileOfTheEncodedPoint() {
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            double latitude = random.nextDouble() * 180 - 90;
+            double longitude = random.nextDouble() * 360 - 180;
+            for (int precision = 1; precision <= Geohash.MAX_PRECISION; precision++) {
+                long hash = Geohash.encode(latitude, longitude, precision);
+                double[] center = Geohash.center(hash, precision);
+                assertEquals(hash, Geohash.encode(center[0], center[1], precision));
+                // Half a tile side: 180 / 2^(latitude bits) / 2 degrees of latitude
+                double halfLat = 90 / Math.pow(2, (precision * 5) / 2);
+                assertTrue(Math.abs(center[0] - latitude) <= halfLat + 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void neighbouringSuburbsShareATileAndDistantCitiesDoNot() {
+        long frolunda = Geohash.encode(57.6517, 11.9106, 5);
+        assertEquals(frolunda, Geohash.encode(57.6530, 11.9250, 5));
+        assertNotEquals(frolunda, Geohash.encode(59.3293, 18.0686, 5));
+    }
+
+    @Test
+    void handlesTheEdgesOfTheMap() {
+        for (double[] point : new double[][]{{90, 180}, {-90, -180}, {0, 0}, {-0.0, -0.0}, {89.9999, -179.9999}}) {
+            long hash = Geohash.encode(point[0], point[1], 6);
+            double[] center = Geohash.center(hash, 6);
+            assertTrue(center[0] >= -90 && center[0] <= 90);
+            assertTrue(center[1] >= -180 && center[1] <= 180);
+        }
+    }
+
+    @Test
+    void rejectsUnsupportedPrecision() {
+        assertThrows(IllegalArgumentException.class, () -> Geohash.checkPrecision(0));
+        assertThrows(IllegalArgumentException.class, () -> Geohash.encode(0, 0, Geohash.MAX_PRECISION + 1));
+    }
+}
@@ -0,0 +1,73 @@
+package se.campusmolndal.easyweather.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HotCityTrackerTest {
+
+    private final MutableClock clock = new MutableClock();
+    private final HotCityTracker tracker = new HotCityTracker(30, 100, 0.25, clock);
+
+    @Test
+    void spellingsOfOneCityShareACounter() {
+        tracker.recordRequest("Göteborg");
+        tracker.recordRequest(" goteborg ");
+        tracker.recordRequest("GÖTEBORG");
+
+        assertEquals(1, tracker.trackedCityCount());
+        assertEquals(3.0, tracker.score("Goteborg"), 1e-9);
+        assertEquals(List.of("Göteborg"), tracker.topCities(5));
+    }
+
+    @Test
+    void scoresHalveEveryHalfLife() {
+        tracker.recordRequest("Paris");
+        tracker.recordRequest("Paris");
+
+        clock.advance(Duration.ofMinutes(30));
+        assertEquals(1.0, tracker.score("Paris"), 1e-9);
+    }
+
+    @Test
+    void topCitiesAreOrderedByScore() {
+        tracker.recordRequest("Lund");
+        for (int i = 0; i < 3; i++) {
+            tracker.recordRequest("Paris");
+        }
+        tracker.recordRequest("Oslo");
+        tracker.recordRequest("Oslo");
+
+        assertEquals(List.of("Paris", "Oslo"), tracker.topCities(2));
+    }
+
+    @Test
+    void citiesBelowTheFloorAreForgotten() {
+        tracker.recordRequest("Paris");
+        for (int i = 0; i < 8; i++) {
+            tracker.recordRequest("Oslo");
+        }
+
+        // Paris decays to 0.125, Oslo to 1.0
+        clock.advance(Duration.ofMinutes(90));
+
+        assertEquals(List.of("Oslo"), tracker.topCities(5));
+        assertEquals(1, tracker.trackedCityCount());
+    }
+
+    @Test
+    void coldestHalfIsPrunedWhenTooManyCitiesAreTracked() {
+        HotCityTracker small = new HotCityTracker(30, 4, 0.0, clock);
+        for (String city : List.of("a", "b", "c", "d")) {
+            small.recordRequest(city);
+            small.recordRequest(city);
+        }
+        small.recordRequest("e");
+
+        assertEquals(3, small.trackedCityCount());
+        assertEquals(0, small.score("e"));
+    }
+}
@@ -0,0 +1,107 @@
+package se.campusmolndal.easyweather.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class KdTreeTest {
+
+    @Test
+    void bulkLoadedTreeMatchesBruteForce() {
+        Random random = new Random(7);
+        double[][] points = randomPoints(random, 5000);
+        KdTree tree = new KdTree();
+        for (int i = 0; i < points.length; i++) {
+            tree.add(points[i][0], points[i][1], i);
+        }
+        tree.rebuild();
+
+        assertEquals(points.length, tree.size());
+        assertMatchesBruteForce(tree, points, random, points.length);
+    }
+
+    @Test
+    void insertedPointsMatchBruteForceAcrossRebalancing() {
+        Random random = new Random(11);
+        double[][] points = randomPoints(random, 3000);
+        KdTree tree = new KdTree();
+        for (int i = 0; i < 500; i++) {
+            tree.add(points[i][0], points[i][1], i);
+        }
+        tree.rebuild();
+        for (int i = 500; i < points.length; i++) {
+            tree.insert(points[i][0], points[i][1], i);
+            if (i % 500 == 0) {
+                assertMatchesBruteForce(tree, points, random, i + 1);
+            }
+        }
+        assertEquals(points.length, tree.size());
+        assertMatchesBruteForce(tree, points, random, points.length);
+    }
+
+    @Test
+    void findsNeighboursAcrossTheDateLineAndPoles() {
+        KdTree tree = new KdTree();
+        tree.insert(0, 179.9, 1);
+        tree.insert(0, 170, 2);
+        tree.insert(89.9, 0, 3);
+        tree.insert(85, 180, 4);
+
+        assertEquals(1, tree.nearest(0, -179.9).getRef());
+        assertEquals(3, tree.nearest(89.9, 180).getRef());
+        assertEquals(22.2, tree.nearest(0, -179.9).getDistanceKm(), 0.1);
+    }
+
+    @Test
+    void reportsGreatCircleDistance() {
+        KdTree tree = new KdTree();
+        tree.insert(59.3293, 18.0686, 1); // Stockholm
+        // Göteborg to Stockholm is about 398 km
+        assertEquals(398, tree.nearest(57.7089, 11.9746).getDistanceKm(), 2);
+        assertEquals(0, tree.nearest(59.3293, 18.0686).getDistanceKm(), 1e-6);
+    }
+
+    @Test
+    void emptyOrUnbuiltTreeHasNoNeighbour() {
+        KdTree tree = new KdTree();
+        assertNull(tree.nearest(0, 0));
+        tree.add(1, 1, 1);
+        assertNull(tree.nearest(0, 0));
+        assertEquals(0, tree.size());
+    }
+
+    private static void assertMatchesBruteForce(KdTree tree, double[][] points, Random random, int count) {
+        for (int q = 0; q < 200; q++) {
+            double latitude = random.nextDouble() * 180 - 90;
+            double longitude = random.nextDouble() * 360 - 180;
+            double best = Double.MAX_VALUE;
+            for (int i = 0; i < count; i++) {
+                best = Math.min(best, haversineKm(latitude, longitude, points[i][0], points[i][1]));
+            }
+            KdTree.Neighbour neighbour = tree.nearest(latitude, longitude);
+            assertEquals(best, neighbour.getDistanceKm(), 1e-6);
+            double[] found = points[neighbour.getRef()];
+            assertEquals(best, haversineKm(latitude, longitude, found[0], found[1]), 1e-6);
+        }
+    }
+
+    private static double[][] randomPoints(Random random, int count) {
+        double[][] points = new double[count][];
+        for (int i = 0; i < count; i++) {
+            // Uniform over the sphere rather than over latitude
+            points[i] = new double[]{Math.toDegrees(Math.asin(random.nextDouble() * 2 - 1)), random.nextDouble() * 360 - 180};
+        }
+        return points;
+    }
+
+    private static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.pow(Math.sin(dLat / 2), 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.pow(Math.sin(dLon / 2), 2);
+        return 2 * 6371.0 * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+}
@@ -0,0 +1,49 @@
+package se.campusmolndal.easyweather.service;
+
+import org.junit.jupiter.api.Test;
+import se.campusmolndal.easyweather.database.CityIndex;
+import se.campusmolndal.easyweather.models.City;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NearbyCityServiceTest {
+
+    @Test
+    void indexesEachGazetteerLocationOnceAndStoredCitiesToo() {
+        CityIndex cityIndex = mock(CityIndex.class);
+        when(cityIndex.getAll()).thenReturn(List.of(new City("Mölndal", 57.6554, 12.0138)));
+        Gazetteer gazetteer = mock(Gazetteer.class);
+        List<Gazetteer.Place> places = List.of(
+                new Gazetteer.Place("Göteborg", 57.70716, 11.96679, 572799, "SE"),
+                new Gazetteer.Place("Goteborg", 57.70716, 11.96679, 572799, "SE"),
+                new Gazetteer.Place("Gothenburg", 57.70716, 11.96679, 572799, "SE"),
+                new Gazetteer.Place("Kiruna", 67.85572, 20.22513, 18154, "SE"));
+        when(gazetteer.size()).thenReturn(places.size());
+        for (int i = 0; i < places.size(); i++) {
+            when(gazetteer.get(i)).thenReturn(places.get(i));
+        }
+
+        NearbyCityService service = new NearbyCityService(cityIndex, gazetteer);
+        service.build();
+
+        assertEquals("Göteborg", service.nearest(57.71, 11.97).getCity().getName());
+        assertEquals("Mölndal", service.nearest(57.65, 12.01).getCity().getName());
+        assertEquals("Kiruna", service.nearest(68, 20).getCity().getName());
+
+        service.addCity(new City("Alingsås", 57.9303, 12.5334));
+        assertEquals("Alingsås", service.nearest(57.93, 12.53).getCity().getName());
+    }
+
+    @Test
+    void locationKeysDoNotCollideForDistinctCoordinates() {
+        assertNotEquals(NearbyCityService.locationKey(0, 0.00031), NearbyCityService.locationKey(0.00001, 0));
+        assertNotEquals(NearbyCityService.locationKey(-0.00001, 0), NearbyCityService.locationKey(0, -0.00001));
+        assertNotEquals(NearbyCityService.locationKey(90, -180), NearbyCityService.locationKey(-90, 180));
+        assertEquals(NearbyCityService.locationKey(57.70716, 11.96679), NearbyCityService.locationKey(57.70716, 11.96679));
+    }
+}
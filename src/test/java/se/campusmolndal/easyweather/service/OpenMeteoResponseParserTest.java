@@ -0,0 +1,99 @@
+package se.campusmolndal.easyweather.service;
+
+import org.junit.jupiter.api.Test;
+import se.campusmolndal.easyweather.models.Forecast;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OpenMeteoResponseParserTest {
+
+    private static final String CURRENT = "{\"latitude\":57.7,\"longitude\":11.96,\"utc_offset_seconds\":7200,"
+            + "\"current_units\":{\"time\":\"unixtime\",\"temperature_2m\":\"°C\"},"
+            + "\"current\":{\"time\":1717236000,\"interval\":900,\"temperature_2m\":18.4,\"weather_code\":3,\"wind_speed_10m\":11.2}}";
+
+    private final OpenMeteoResponseParser parser = new OpenMeteoResponseParser();
+
+    @Test
+    void parsesCurrentConditionsAndSkipsOtherFields() throws IOException {
+        OpenMeteoResponseParser.CurrentConditions current = parser.parseCurrent(json(CURRENT));
+
+        assertEquals(18.4, current.getTemperature());
+        assertEquals(11.2, current.getWindSpeed());
+        assertEquals(3, current.getWeatherCode());
+        assertEquals(1717236000L, current.getTime());
+    }
+
+    @Test
+    void isoTimeIsReportedAsUnknown() throws IOException {
+        OpenMeteoResponseParser.CurrentConditions current = parser.parseCurrent(json(
+                "{\"current\":{\"time\":\"2024-06-01T12:00\",\"temperature_2m\":1.5,\"weather_code\":0,\"wind_speed_10m\":2}}"));
+
+        assertEquals(0, current.getTime());
+    }
+
+    @Test
+    void missingOrNullCurrentFieldsAreRejected() {
+        assertThrows(IOException.class, () -> parser.parseCurrent(json(
+                "{\"current\":{\"temperature_2m\":null,\"weather_code\":3,\"wind_speed_10m\":2}}")));
+        assertThrows(IOException.class, () -> parser.parseCurrent(json("{\"latitude\":57.7}")));
+        assertThrows(IOException.class, () -> parser.parseCurrent(json("[]")));
+    }
+
+    @Test
+    void parsesMultiLocationArrayAndSingleObjectForms() throws IOException {
+        String second = CURRENT.replace("18.4", "-3.5");
+        List<OpenMeteoResponseParser.CurrentConditions> array = parser.parseCurrentList(json("[" + CURRENT + "," + second + "]"));
+        List<OpenMeteoResponseParser.CurrentConditions> single = parser.parseCurrentList(json(CURRENT));
+
+        assertEquals(2, array.size());
+        assertEquals(18.4, array.get(0).getTemperature());
+        assertEquals(-3.5, array.get(1).getTemperature());
+        assertEquals(1, single.size());
+        assertEquals(18.4, single.get(0).getTemperature());
+    }
+
+    @Test
+    void parsesForecastColumnsWithNullsAsMissingValues() throws IOException {
+        // Daily points fall on local midnights; the one across the DST change is 23 hours long
+        String body = "{\"latitude\":59.33,\"longitude\":18.07,\"utc_offset_seconds\":3600,"
+                + "\"hourly\":{\"time\":[1711839600,1711843200,1711846800],\"temperature_2m\":[4.1,null,3.2],"
+                + "\"wind_speed_10m\":[5.0,6.0,7.0],\"weather_code\":[1,null,3],\"precipitation_probability\":[0,10,20]},"
+                + "\"daily\":{\"time\":[1711753200,1711839600,1711922400],\"temperature_2m_max\":[8.0,9.0,10.0],"
+                + "\"temperature_2m_min\":[1.0,2.0,null],\"precipitation_sum\":[0.0,1.2,0.4],"
+                + "\"wind_speed_10m_max\":[12.0,13.0,14.0],\"weather_code\":[3,61,2]}}";
+
+        Forecast forecast = parser.parseForecast(json(body));
+
+        assertEquals(59.33, forecast.getLatitude());
+        assertEquals(3600, forecast.getUtcOffsetSeconds());
+        assertEquals(3, forecast.getHourlyCount());
+        assertEquals(1711846800L, forecast.hourlyTime(2));
+        assertTrue(Double.isNaN(forecast.getHourlyTemperature()[1]));
+        assertArrayEquals(new short[]{1, -1, 3}, forecast.getHourlyWeatherCode());
+        assertArrayEquals(new long[]{1711753200L, 1711839600L, 1711922400L}, forecast.getDailyTime());
+        assertEquals(82800, forecast.dailyTime(2) - forecast.dailyTime(1));
+        assertTrue(Double.isNaN(forecast.getDailyTemperatureMin()[2]));
+        assertArrayEquals(new short[]{3, 61, 2}, forecast.getDailyWeatherCode());
+    }
+
+    @Test
+    void missingForecastSectionsGiveEmptyColumns() throws IOException {
+        Forecast forecast = parser.parseForecast(json("{\"latitude\":1.0,\"longitude\":2.0}"));
+
+        assertEquals(0, forecast.getHourlyCount());
+        assertEquals(0, forecast.getDailyCount());
+    }
+
+    private static InputStream json(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,135 @@
+package se.campusmolndal.easyweather.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    private final SingleFlight<String, String> flights = new SingleFlight<>();
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> first = executor.submit(() -> flights.execute("paris", () -> {
+                loads.incrementAndGet();
+                started.countDown();
+                await(release);
+                return "sunny";
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            String[] second = new String[1];
+            Thread waiter = new Thread(() -> second[0] = flights.execute("paris", () -> {
+                loads.incrementAndGet();
+                return "other";
+            }));
+            waiter.start();
+            while (waiter.getState() != Thread.State.WAITING) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+            waiter.join(5000);
+
+            assertEquals("sunny", first.get(5, TimeUnit.SECONDS));
+            assertEquals("sunny", second[0]);
+            assertEquals(1, loads.get());
+            assertFalse(flights.isInFlight("paris"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void runtimeExceptionReachesTheCallerAndFreesTheKey() {
+        assertThrows(IllegalStateException.class, () -> flights.execute("paris", () -> {
+            throw new IllegalStateException("boom");
+        }));
+        assertFalse(flights.isInFlight("paris"));
+        assertEquals("sunny", flights.execute("paris", () -> "sunny"));
+    }
+
+    @Test
+    void errorFreesTheKey() {
+        assertThrows(AssertionError.class, () -> flights.execute("paris", () -> {
+            throw new AssertionError("boom");
+        }));
+        assertFalse(flights.isInFlight("paris"));
+        assertEquals(0, flights.inFlightCount());
+    }
+
+    @Test
+    void sneakyCheckedExceptionFreesTheKey() {
+        Exception thrown = assertThrows(Exception.class, () -> flights.execute("paris", SingleFlightTest::sneakyThrow));
+        assertInstanceOf(java.io.IOException.class, thrown);
+        assertFalse(flights.isInFlight("paris"));
+    }
+
+    @Test
+    void asyncCallersShareTheFutureUntilItCompletes() {
+        CompletableFuture<String> load = new CompletableFuture<>();
+        CompletableFuture<String> first = flights.executeAsync("paris", () -> load);
+        CompletableFuture<String> second = flights.executeAsync("paris", () -> CompletableFuture.completedFuture("other"));
+
+        assertSame(first, second);
+        load.complete("sunny");
+        assertEquals("sunny", second.join());
+        assertFalse(flights.isInFlight("paris"));
+    }
+
+    @Test
+    void asyncLoaderThatThrowsCompletesExceptionally() {
+        CompletableFuture<String> result = flights.executeAsync("paris", () -> {
+            throw new StackOverflowError();
+        });
+
+        CompletionException e = assertThrows(CompletionException.class, result::join);
+        assertInstanceOf(StackOverflowError.class, e.getCause());
+        assertFalse(flights.isInFlight("paris"));
+    }
+
+    @Test
+    void failedAsyncLoadIsPropagatedAndFreesTheKey() {
+        CompletableFuture<String> result = flights.executeAsync("paris",
+                () -> CompletableFuture.failedFuture(new IllegalStateException("boom")));
+
+        assertThrows(CompletionException.class, result::join);
+        assertFalse(flights.isInFlight("paris"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String sneakyThrow() {
+        SingleFlightTest.<RuntimeException>throwAs(new java.io.IOException("boom"));
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E extends Throwable> void throwAs(Throwable e) throws E {
+        throw (E) e;
+    }
+}
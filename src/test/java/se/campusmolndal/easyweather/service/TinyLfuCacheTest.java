@@ -0,0 +1,123 @@
+package se.campusmolndal.easyweather.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TinyLfuCacheTest {
+
+    private final MutableClock clock = new MutableClock();
+
+    @Test
+    void totalWeightStaysWithinTheBudget() {
+        TinyLfuCache<Integer, byte[]> cache = cache(10_000);
+        Random random = new Random(3);
+        Map<Integer, byte[]> latest = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            int key = random.nextInt(500);
+            if (random.nextBoolean()) {
+                byte[] value = new byte[1 + random.nextInt(400)];
+                cache.put(key, value);
+                latest.put(key, value);
+            } else {
+                byte[] value = cache.get(key);
+                if (value != null) {
+                    assertSame(latest.get(key), value);
+                }
+            }
+            TinyLfuCache.Stats stats = cache.getStats();
+            assertTrue(stats.getWeight() <= stats.getMaxWeight(), "weight " + stats.getWeight());
+        }
+
+        long weight = 0;
+        for (Map.Entry<Integer, byte[]> entry : latest.entrySet()) {
+            if (cache.get(entry.getKey()) != null) {
+                weight += entry.getValue().length;
+            }
+        }
+        assertEquals(weight, cache.getStats().getWeight());
+    }
+
+    @Test
+    void frequentlyRequestedEntriesSurviveABurstOfOneOffKeys() {
+        TinyLfuCache<String, byte[]> cache = cache(100);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                String key = "hot-" + i;
+                if (cache.get(key) == null) {
+                    cache.put(key, new byte[1]);
+                }
+            }
+        }
+
+        for (int i = 0; i < 2000; i++) {
+            cache.put("once-" + i, new byte[1]);
+        }
+
+        int survivors = 0;
+        for (int i = 0; i < 50; i++) {
+            if (cache.get("hot-" + i) != null) {
+                survivors++;
+            }
+        }
+        assertTrue(survivors >= 45, survivors + " of 50 hot entries survived");
+        assertTrue(cache.getStats().getRejections() > 0);
+    }
+
+    @Test
+    void entriesExpireAfterTheirTimeToLive() {
+        TinyLfuCache<String, byte[]> cache = cache(100);
+        cache.put("default", new byte[10]);
+        cache.put("short", new byte[20], Duration.ofSeconds(30));
+
+        clock.advance(Duration.ofSeconds(31));
+        assertNull(cache.get("short"));
+        assertEquals(10, cache.get("default").length);
+
+        clock.advance(Duration.ofMinutes(10));
+        assertNull(cache.get("default"));
+
+        TinyLfuCache.Stats stats = cache.getStats();
+        assertEquals(2, stats.getExpirations());
+        assertEquals(0, stats.getWeight());
+        assertEquals(0, stats.getSize());
+    }
+
+    @Test
+    void valuesHeavierThanTheBudgetAreNotCached() {
+        TinyLfuCache<String, byte[]> cache = cache(100);
+        cache.put("city", new byte[40]);
+        cache.put("city", new byte[101]);
+
+        assertNull(cache.get("city"));
+        assertEquals(0, cache.getStats().getWeight());
+        assertEquals(1, cache.getStats().getRejections());
+    }
+
+    @Test
+    void invalidateAndClearReleaseWeight() {
+        TinyLfuCache<String, byte[]> cache = cache(100);
+        cache.put("a", new byte[30]);
+        cache.put("b", new byte[30]);
+        cache.invalidate("a");
+        assertNull(cache.get("a"));
+        assertEquals(30, cache.getStats().getWeight());
+
+        cache.clear();
+        assertNull(cache.get("b"));
+        assertEquals(0, cache.getStats().getWeight());
+        assertEquals(0, cache.getStats().getSize());
+    }
+
+    private <K> TinyLfuCache<K, byte[]> cache(long maxWeight) {
+        return new TinyLfuCache<>(maxWeight, 1000, Duration.ofMinutes(5), value -> value.length, clock);
+    }
+}
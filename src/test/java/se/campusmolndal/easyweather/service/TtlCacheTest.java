@@ -0,0 +1,88 @@
+package se.campusmolndal.easyweather.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TtlCacheTest {
+
+    private final MutableClock clock = new MutableClock();
+
+    @Test
+    void entriesExpireAfterTheirTimeToLive() {
+        TtlCache<String, String> cache = new TtlCache<>(10, Duration.ofMinutes(15), Duration.ZERO, clock);
+        cache.put("paris", "sunny");
+
+        clock.advance(Duration.ofMinutes(14));
+        assertEquals("sunny", cache.get("paris"));
+        assertEquals(Duration.ofMinutes(1), cache.timeToExpiry("paris"));
+
+        clock.advance(Duration.ofMinutes(1));
+        assertNull(cache.get("paris"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void expiredEntriesStayAvailableAsStaleInsideTheWindow() {
+        TtlCache<String, String> cache = new TtlCache<>(10, Duration.ofMinutes(15), Duration.ofHours(1), clock);
+        cache.put("paris", "sunny");
+
+        clock.advance(Duration.ofMinutes(5));
+        TtlCache.Stale<String> fresh = cache.getStale("paris");
+        assertFalse(fresh.isExpired());
+
+        clock.advance(Duration.ofMinutes(20));
+        assertNull(cache.get("paris"));
+        TtlCache.Stale<String> stale = cache.getStale("paris");
+        assertEquals("sunny", stale.getValue());
+        assertEquals(Duration.ofMinutes(25), stale.getAge());
+        assertTrue(stale.isExpired());
+
+        clock.advance(Duration.ofHours(1));
+        assertNull(cache.getStale("paris"));
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvictedWhenFull() {
+        TtlCache<String, Integer> cache = new TtlCache<>(2, Duration.ofMinutes(15), Duration.ZERO, clock);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.get("a");
+        cache.put("c", 3);
+
+        assertEquals(1, cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(3, cache.get("c"));
+        assertEquals(1, cache.getStats().getEvictions());
+    }
+
+    @Test
+    void putIfAbsentKeepsTheLiveEntryAndReplacesAnExpiredOne() {
+        TtlCache<String, Integer> cache = new TtlCache<>(10, Duration.ofMinutes(15), Duration.ZERO, clock);
+
+        assertNull(cache.putIfAbsent("a", 1));
+        assertEquals(1, cache.putIfAbsent("a", 2));
+
+        clock.advance(Duration.ofMinutes(15));
+        assertNull(cache.putIfAbsent("a", 3));
+        assertEquals(3, cache.get("a"));
+    }
+
+    @Test
+    void statsCountHitsAndMisses() {
+        TtlCache<String, Integer> cache = new TtlCache<>(10, Duration.ofMinutes(15), Duration.ZERO, clock);
+        cache.put("a", 1);
+        cache.get("a");
+        cache.get("b");
+
+        TtlCache.Stats stats = cache.getStats();
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(0.5, stats.getHitRate());
+    }
+}
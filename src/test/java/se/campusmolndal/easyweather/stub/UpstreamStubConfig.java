@@ -0,0 +1,24 @@
+package se.campusmolndal.easyweather.stub;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Starts the {@link UpstreamStubServer} inside the application when
+ * {@code upstream.stub.enabled=true}. Never enabled by default, and only present when
+ * the application runs with the test classes on its classpath (tests, the IDE).
+ */
+@Configuration
+@ConditionalOnProperty(name = "upstream.stub.enabled", havingValue = "true")
+public class UpstreamStubConfig {
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public UpstreamStubServer upstreamStubServer(@Value("${upstream.stub.port:18089}") int port,
+                                                 @Value("${upstream.stub.latency-ms:50}") long latencyMillis,
+                                                 @Value("${upstream.stub.latency-jitter-ms:20}") long latencyJitterMillis,
+                                                 @Value("${upstream.stub.error-rate:0.0}") double errorRate) {
+        return new UpstreamStubServer(port, latencyMillis, latencyJitterMillis, errorRate);
+    }
+}
@@ -0,0 +1,198 @@
+package se.campusmolndal.easyweather.stub;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for Open-Meteo and OpenCage, for load testing the request path
+ * without touching the public APIs. Replays the recorded responses under
+ * {@code /stub} on the classpath with configurable latency and error injection.
+ *
+ * Geocoding answers are deterministic per query (coordinates are derived from a hash
+ * of the name), so different cities land in different forecast grid cells, just like
+ * real traffic. Point the application at it with
+ * {@code openmeteo.base-url=http://localhost:<port>/v1/forecast} and
+ * {@code opencage.base-url=http://localhost:<port>/geocode/v1/json}.
+ */
+public class UpstreamStubServer {
+
+    private final int port;
+    private final long latencyMillis;
+    private final long latencyJitterMillis;
+    private final double errorRate;
+
+    private final String currentTemplate;
+    private final String detailedTemplate;
+    private final String geocodeTemplate;
+
+    private final AtomicLong forecastRequests = new AtomicLong();
+    private final AtomicLong geocodeRequests = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public UpstreamStubServer(int port, long latencyMillis, long latencyJitterMillis, double errorRate) {
+        this.port = port;
+        this.latencyMillis = latencyMillis;
+        this.latencyJitterMillis = latencyJitterMillis;
+        this.errorRate = errorRate;
+        this.currentTemplate = loadFixture("/stub/forecast-current.json");
+        this.detailedTemplate = loadFixture("/stub/forecast-detailed.json");
+        this.geocodeTemplate = loadFixture("/stub/geocode.json");
+    }
+
+    public synchronized void start() throws IOException {
+        if (server != null) {
+            return;
+        }
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        executor = Executors.newFixedThreadPool(64);
+        server.setExecutor(executor);
+        server.createContext("/v1/forecast", this::handleForecast);
+        server.createContext("/geocode/v1/json", this::handleGeocode);
+        server.start();
+        System.out.println("Upstream stub listening on " + getBaseUrl());
+    }
+
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    public String getBaseUrl() {
+        int boundPort = server != null ? server.getAddress().getPort() : port;
+        return "http://127.0.0.1:" + boundPort;
+    }
+
+    public long getForecastRequests() { return forecastRequests.get(); }
+    public long getGeocodeRequests() { return geocodeRequests.get(); }
+    public long getInjectedErrors() { return injectedErrors.get(); }
+
+    private void handleForecast(HttpExchange exchange) throws IOException {
+        forecastRequests.incrementAndGet();
+        if (simulateUpstream(exchange)) {
+            return;
+        }
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        String[] latitudes = query.getOrDefault("latitude", "0").split(",");
+        String[] longitudes = query.getOrDefault("longitude", "0").split(",");
+        String template = query.containsKey("hourly") || query.containsKey("daily") ? detailedTemplate : currentTemplate;
+
+        // Multi-coordinate requests are answered with an array, one object per location
+        if (latitudes.length == 1) {
+            respond(exchange, 200, fillCoordinates(template, latitudes[0], longitudes[0]));
+            return;
+        }
+        StringJoiner locations = new StringJoiner(",", "[", "]");
+        for (int i = 0; i < latitudes.length; i++) {
+            locations.add(fillCoordinates(template, latitudes[i], longitudes[Math.min(i, longitudes.length - 1)]).trim());
+        }
+        respond(exchange, 200, locations.toString());
+    }
+
+    private void handleGeocode(HttpExchange exchange) throws IOException {
+        geocodeRequests.incrementAndGet();
+        if (simulateUpstream(exchange)) {
+            return;
+        }
+        String name = parseQuery(exchange.getRequestURI().getRawQuery()).getOrDefault("q", "Unknown");
+        int hash = name.toLowerCase().hashCode();
+        double latitude = Math.floorMod(hash, 12000) / 100.0 - 60.0;
+        double longitude = Math.floorMod(hash / 12000, 36000) / 100.0 - 180.0;
+        String body = geocodeTemplate
+                .replace("{{query}}", name.replace("\\", "\\\\").replace("\"", "\\\""))
+                .replace("{{latitude}}", String.valueOf(latitude))
+                .replace("{{longitude}}", String.valueOf(longitude));
+        respond(exchange, 200, body);
+    }
+
+    // Applies the configured latency and, with probability errorRate, answers 503.
+    // Returns true when an error response was sent.
+    private boolean simulateUpstream(HttpExchange exchange) throws IOException {
+        long delay = latencyMillis + (latencyJitterMillis > 0 ? ThreadLocalRandom.current().nextLong(latencyJitterMillis + 1) : 0);
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            injectedErrors.incrementAndGet();
+            respond(exchange, 503, "{\"error\":true,\"reason\":\"Injected failure\"}");
+            return true;
+        }
+        return false;
+    }
+
+    private static String fillCoordinates(String template, String latitude, String longitude) {
+        return template.replace("{{latitude}}", latitude).replace("{{longitude}}", longitude);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.put(key, value);
+        }
+        return params;
+    }
+
+    private static String loadFixture(String resource) {
+        try (InputStream in = UpstreamStubServer.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing stub fixture " + resource);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Runs the stub as a standalone process. It lives in the test sources so production
+     * builds never contain it, and needs nothing beyond the JDK:
+     * {@code mvn test-compile} then
+     * {@code java -cp target/test-classes se.campusmolndal.easyweather.stub.UpstreamStubServer [port] [latencyMs] [jitterMs] [errorRate]}
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 18089;
+        long latency = args.length > 1 ? Long.parseLong(args[1]) : 50;
+        long jitter = args.length > 2 ? Long.parseLong(args[2]) : 20;
+        double errorRate = args.length > 3 ? Double.parseDouble(args[3]) : 0.0;
+        new UpstreamStubServer(port, latency, jitter, errorRate).start();
+    }
+}